@@ -90,6 +90,15 @@ export const apiService = {
     return await api.get(`/users/${userId}/following`);
   },
 
+  // Follow state between the current user and each given user, in batches the server accepts
+  getRelationships: async (userIds) => {
+    const batches = [];
+    for (let i = 0; i < userIds.length; i += 500) {
+      batches.push(api.post('/users/relationships', { userIds: userIds.slice(i, i + 500) }));
+    }
+    return (await Promise.all(batches)).flat();
+  },
+
   // Media
   uploadMedia: async (file, description) => {
     const formData = new FormData();
@@ -18,9 +18,10 @@ export function Home() {
         setLoading(true);
         setError(null);
 
-        const userProfile = await apiService.getPrivateProfile(user?.id);
-        const followingIds = new Set(userProfile?.followingIds || []);
         const allPosts = await apiService.getPosts();
+        const authorIds = [...new Set(allPosts.map(post => post.user_id || post.userId).filter(Boolean))];
+        const relationships = await apiService.getRelationships(authorIds);
+        const followingIds = new Set(relationships.filter(r => r.following).map(r => r.userId));
 
         const filteredPosts = allPosts.filter(post => {
           const postUserId = post.user_id || post.userId;
@@ -35,8 +35,8 @@ export function OtherProfile() {
 
         // Check if following
         if (!isOwnProfile && user) {
-          const currentUserProfile = await apiService.getPrivateProfile(user.id);
-          setIsFollowing(currentUserProfile.followingIds.includes(userId));
+          const [relationship] = await apiService.getRelationships([userId]);
+          setIsFollowing(Boolean(relationship?.following));
         }
 
         // Fetch posts
@@ -19,14 +19,13 @@ export function Users() {
       try {
         setLoading(true);
         setError(null);
-        const currentUserProfile = await apiService.getPrivateProfile(user.id);
-        const following = new Set(currentUserProfile?.followingIds || []);
-    
         // Get all users
         const allUsers = await apiService.getAllUsers();
         console.log('All users:', allUsers); // Log the response
     
         const otherUsers = allUsers.filter(u => u.id !== user.id);
+        const relationships = await apiService.getRelationships(otherUsers.map(u => u.id));
+        const following = new Set(relationships.filter(r => r.following).map(r => r.userId));
         setUsers(otherUsers);
         setFollowingMap(
           otherUsers.reduce((acc, u) => ({
@@ -3,8 +3,8 @@ package com.skillshare.controller;
 import com.skillshare.model.Comment;
 import com.skillshare.model.Notification;
 import com.skillshare.repository.CommentRepository;
-import com.skillshare.repository.NotificationRepository;
 import com.skillshare.repository.PostRepository;
+import com.skillshare.service.NotificationService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,7 +23,7 @@ import java.util.List;
 public class CommentController {
     private final CommentRepository commentRepository;
     private final PostRepository postRepository; 
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
 
     
     @GetMapping
@@ -78,7 +78,7 @@ public class CommentController {
                 notification.setCreatedAt(Instant.now());
             
                 // Save the notification
-                notificationRepository.save(notification);
+                notificationService.create(notification);
             
             } catch (Exception e) {
                 log.error("Error while creating notification", e);
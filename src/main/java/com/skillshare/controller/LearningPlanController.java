@@ -1,15 +1,27 @@
 package com.skillshare.controller;
 //importLcontriller
+import com.skillshare.model.CursorPage;
 import com.skillshare.model.LearningPlan;
+import com.skillshare.model.LearningPlanSummary;
+import com.skillshare.model.Lesson;
+import com.skillshare.model.LessonPatch;
 import com.skillshare.repository.LearningPlanRepository;
+import com.skillshare.service.LearningPlanFacetService;
+import com.skillshare.service.LearningProgressService;
+import com.skillshare.service.PlanRecommendationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
@@ -17,41 +29,90 @@ import java.util.List;
 @RequiredArgsConstructor
 public class LearningPlanController {
     private final LearningPlanRepository learningPlanRepository;
+    private final LearningPlanFacetService learningPlanFacetService;
+    private final LearningProgressService learningProgressService;
+    private final PlanRecommendationService planRecommendationService;
+
+    @Value("${learning-plans.page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${learning-plans.max-page-size:100}")
+    private int maxPageSize;
 //list lerningplan
     @GetMapping
-    public ResponseEntity<List<LearningPlan>> getAllLearningPlans(
+    public ResponseEntity<List<LearningPlanSummary>> getAllLearningPlans(
         @RequestParam(required = false) String skill,
-        @RequestParam(required = false) String skillLevel
+        @RequestParam(required = false) String skillLevel,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit
     ) {
         try {
-            List<LearningPlan> plans;
+            int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+            CursorPage<LearningPlanSummary> page =
+                learningPlanRepository.findSummaryPage(skill, skillLevel, cursor, pageSize);
             
-            if (skill != null && skillLevel != null) {
-                plans = learningPlanRepository.findAll().stream()
-                    .filter(plan -> plan.getSkill().equals(skill) && plan.getSkillLevel().equals(skillLevel))
-                    .toList();
-            } else if (skill != null) {
-                plans = learningPlanRepository.findBySkill(skill);
-            } else if (skillLevel != null) {
-                plans = learningPlanRepository.findBySkillLevel(skillLevel);
-            } else {
-                plans = learningPlanRepository.findAll();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
             }
             //returnRepo
-            return ResponseEntity.ok(plans);
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching learning plans", e);
             throw new RuntimeException("Failed to fetch learning plans", e);
         }
     }
 
+    @GetMapping("/facets")
+    public ResponseEntity<LearningPlanFacetService.Facets> getFacets() {
+        try {
+            return ResponseEntity.ok(learningPlanFacetService.getFacets());
+        } catch (Exception e) {
+            log.error("Error fetching learning plan facets", e);
+            throw new RuntimeException("Failed to fetch learning plan facets", e);
+        }
+    }
+
+    @GetMapping("/progress")
+    public ResponseEntity<List<LearningProgressService.PlanProgress>> getMyProgress() {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+            
+            return ResponseEntity.ok(learningProgressService.getProgress(userId));
+        } catch (Exception e) {
+            log.error("Error fetching learning progress", e);
+            throw new RuntimeException("Failed to fetch learning progress", e);
+        }
+    }
+
+    @GetMapping("/recommendations")
+    public ResponseEntity<List<LearningPlanSummary>> getRecommendations(
+        @RequestParam(defaultValue = "10") int limit
+    ) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+            
+            List<String> planIds = planRecommendationService.getRecommendations(userId, Math.max(limit, 0));
+            Map<String, LearningPlanSummary> plans = learningPlanRepository.findSummariesByIds(planIds).stream()
+                .collect(Collectors.toMap(LearningPlanSummary::getId, Function.identity()));
+            return ResponseEntity.ok(planIds.stream().map(plans::get).filter(Objects::nonNull).toList());
+        } catch (Exception e) {
+            log.error("Error fetching learning plan recommendations", e);
+            throw new RuntimeException("Failed to fetch learning plan recommendations", e);
+        }
+    }
+
     @GetMapping("/my-plans")
-    public ResponseEntity<List<LearningPlan>> getMyLearningPlans() {
+    public ResponseEntity<List<LearningPlanSummary>> getMyLearningPlans() {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String userId = auth.getName();
             
-            List<LearningPlan> plans = learningPlanRepository.findByUserId(userId);
+            List<LearningPlanSummary> plans = learningPlanRepository.findSummariesByUserId(userId);
             return ResponseEntity.ok(plans);
         } catch (Exception e) {
             log.error("Error fetching user's learning plans", e);
@@ -79,6 +140,8 @@ public class LearningPlanController {
                 .build();
                 
             LearningPlan savedPlan = learningPlanRepository.save(newPlan);
+            learningPlanFacetService.recordCreated(savedPlan);
+            planRecommendationService.recordPlanCreated(savedPlan);
             return ResponseEntity.ok(savedPlan);
         } catch (Exception e) {
             log.error("Error creating learning plan", e);
@@ -97,6 +160,116 @@ public class LearningPlanController {
             throw new RuntimeException("Failed to fetch learning plan", e);
         }
     }
+
+    @GetMapping("/{id}/lessons")
+    public ResponseEntity<List<Lesson>> getLessons(
+        @PathVariable String id,
+        @RequestParam(defaultValue = "0") int offset,
+        @RequestParam(required = false) Integer limit
+    ) {
+        try {
+            if (offset < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+            return learningPlanRepository.findLessons(id, offset, pageSize)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.error("Error fetching lessons for learning plan with id: {}", id, e);
+            throw new RuntimeException("Failed to fetch lessons", e);
+        }
+    }
+
+    @PatchMapping("/{id}/lessons/{index}")
+    public ResponseEntity<Void> updateLesson(
+        @PathVariable String id,
+        @PathVariable int index,
+        @RequestBody LessonPatch lesson
+    ) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+            
+            if (index < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (learningPlanRepository.patchLesson(id, userId, index, lesson)) {
+                return ResponseEntity.ok().build();
+            }
+            // Tell a foreign plan apart from a missing plan or lesson
+            return learningPlanRepository.findById(id)
+                .filter(plan -> !plan.getUserId().equals(userId))
+                .map(plan -> ResponseEntity.status(403).<Void>build())
+                .orElse(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.error("Error updating lesson {} of learning plan with id: {}", index, id, e);
+            throw new RuntimeException("Failed to update lesson", e);
+        }
+    }
+
+    @PutMapping("/{id}/progress")
+    public ResponseEntity<Void> enroll(@PathVariable String id) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+            
+            if (!learningPlanRepository.existsById(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            learningProgressService.enroll(userId, id);
+            planRecommendationService.recordEnrollmentChanged(userId);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Error enrolling in learning plan with id: {}", id, e);
+            throw new RuntimeException("Failed to enroll in learning plan", e);
+        }
+    }
+
+    @DeleteMapping("/{id}/progress")
+    public ResponseEntity<Void> unenroll(@PathVariable String id) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+            
+            learningProgressService.unenroll(userId, id);
+            planRecommendationService.recordEnrollmentChanged(userId);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Error leaving learning plan with id: {}", id, e);
+            throw new RuntimeException("Failed to leave learning plan", e);
+        }
+    }
+
+    @PutMapping("/{id}/progress/lessons/{index}")
+    public ResponseEntity<Void> completeLesson(@PathVariable String id, @PathVariable int index) {
+        return setLessonCompleted(id, index, true);
+    }
+
+    @DeleteMapping("/{id}/progress/lessons/{index}")
+    public ResponseEntity<Void> uncompleteLesson(@PathVariable String id, @PathVariable int index) {
+        return setLessonCompleted(id, index, false);
+    }
+
+    private ResponseEntity<Void> setLessonCompleted(String id, int index, boolean completed) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+            
+            if (index < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (!learningProgressService.setLessonCompleted(userId, id, index, completed)) {
+                return ResponseEntity.notFound().build();
+            }
+            // Completing a lesson enrolls the user if they were not already
+            planRecommendationService.recordEnrollmentChanged(userId);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Error updating progress for lesson {} of learning plan with id: {}", index, id, e);
+            throw new RuntimeException("Failed to update learning progress", e);
+        }
+    }
 //putmapping
     @PutMapping("/{id}")
     public ResponseEntity<LearningPlan> updateLearningPlan(
@@ -127,7 +300,11 @@ public class LearningPlanController {
                         .updatedAt(Instant.now())
                         .build();
                         
-                    return ResponseEntity.ok(learningPlanRepository.save(updatedPlan));
+                    LearningPlan savedPlan = learningPlanRepository.save(updatedPlan);
+                    learningProgressService.resetChangedLessons(id, existingPlan.getLessons(), savedPlan.getLessons());
+                    learningPlanFacetService.recordUpdated(existingPlan, savedPlan);
+                    planRecommendationService.recordPlanUpdated(existingPlan, savedPlan);
+                    return ResponseEntity.ok(savedPlan);
                 })
                 .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
@@ -150,6 +327,9 @@ public class LearningPlanController {
                     }
                     
                     learningPlanRepository.deleteById(id);
+                    learningProgressService.deletePlanProgress(id);
+                    learningPlanFacetService.recordDeleted(plan);
+                    planRecommendationService.recordPlanDeleted(plan);
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
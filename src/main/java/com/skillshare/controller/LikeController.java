@@ -3,8 +3,8 @@ package com.skillshare.controller;
 import com.skillshare.model.Like;
 import com.skillshare.model.Notification;
 import com.skillshare.repository.LikeRepository;
-import com.skillshare.repository.NotificationRepository;
 import com.skillshare.repository.PostRepository;
+import com.skillshare.service.NotificationService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,7 +22,7 @@ import java.util.List;
 public class LikeController {
     private final LikeRepository likeRepository;
     private final PostRepository postRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
 
     @GetMapping
     public ResponseEntity<List<Like>> getLikes(@PathVariable String postId) {
@@ -74,7 +74,7 @@ public ResponseEntity<Like> addLike(@PathVariable String postId) {
             notification.setRead(false);
             notification.setCreatedAt(Instant.now());
 
-            notificationRepository.save(notification);
+            notificationService.create(notification);
 
         } catch (Exception e) {
             log.error("Error while creating like notification", e);
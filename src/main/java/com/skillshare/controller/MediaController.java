@@ -1,20 +1,62 @@
 package com.skillshare.controller;
 
 import com.skillshare.model.MediaItem;
+import com.skillshare.model.MediaUpload;
+import com.skillshare.service.MediaDerivativeService;
+import com.skillshare.service.MediaDiskCache;
 import com.skillshare.service.MediaService;
+import com.skillshare.service.MediaSlabCache;
+import com.skillshare.service.MediaUploadService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 @RestController
 @RequestMapping("/media")
 @RequiredArgsConstructor
 public class MediaController {
+    // Single byte range, either "start-[end]" or a "-suffix" length
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d{0,18})-(\\d{0,18})");
+
+    // Media ids are never reused for different content, so responses can be cached indefinitely
+    private static final CacheControl IMMUTABLE_CACHE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl PROVISIONAL_CACHE = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
+
+    private static final int MAX_INFO_IDS = 100;
+
+    // Tomcat sends a file named in these request attributes straight from disk to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final MediaService mediaService;
+    private final MediaDerivativeService mediaDerivativeService;
+    private final MediaUploadService mediaUploadService;
+    private final MediaDiskCache mediaDiskCache;
+    private final MediaSlabCache mediaSlabCache;
     
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<MediaItem> uploadMedia(
@@ -31,16 +73,327 @@ public class MediaController {
         }
     }
    
+    @PostMapping("/uploads")
+    public ResponseEntity<MediaUpload> initiateUpload(@RequestBody UploadRequest request) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+            
+            return ResponseEntity.ok(mediaUploadService.initiate(
+                userId, request.filename(), request.contentType(), request.size(), request.description()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error starting upload", e);
+            throw new RuntimeException("Failed to start upload", e);
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<MediaUpload> getUpload(@PathVariable String uploadId) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            MediaUpload upload = mediaUploadService.getUpload(uploadId, auth.getName());
+            return upload == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(upload);
+        } catch (Exception e) {
+            log.error("Error fetching upload {}", uploadId, e);
+            throw new RuntimeException("Failed to fetch upload", e);
+        }
+    }
+
+    // The chunk is read from the request stream as it arrives rather than being buffered
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<MediaUploadService.ChunkResult> uploadChunk(
+        @PathVariable String uploadId,
+        @RequestParam("offset") long offset,
+        HttpServletRequest request
+    ) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            MediaUpload upload = mediaUploadService.getUpload(uploadId, auth.getName());
+            if (upload == null) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            MediaUploadService.ChunkResult result = mediaUploadService.appendChunk(upload, offset, request.getInputStream());
+            return switch (result.status()) {
+                case ACCEPTED -> ResponseEntity.ok(result);
+                case OFFSET_MISMATCH, BUSY -> ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+                case TOO_LARGE -> ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(result);
+            };
+        } catch (Exception e) {
+            log.error("Error receiving chunk at offset {} of upload {}", offset, uploadId, e);
+            throw new RuntimeException("Failed to receive upload chunk", e);
+        }
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<MediaItem> completeUpload(@PathVariable String uploadId) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            MediaUpload upload = mediaUploadService.getUpload(uploadId, auth.getName());
+            if (upload == null) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            MediaItem media = mediaUploadService.complete(upload);
+            return media == null ? ResponseEntity.status(HttpStatus.CONFLICT).build() : ResponseEntity.ok(media);
+        } catch (Exception e) {
+            log.error("Error completing upload {}", uploadId, e);
+            throw new RuntimeException("Failed to complete upload", e);
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelUpload(@PathVariable String uploadId) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            MediaUpload upload = mediaUploadService.getUpload(uploadId, auth.getName());
+            if (upload == null) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            mediaUploadService.cancel(upload);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Error cancelling upload {}", uploadId, e);
+            throw new RuntimeException("Failed to cancel upload", e);
+        }
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(Map.of(
+            "disk", mediaDiskCache.getStats(),
+            "slab", mediaSlabCache.getStats()
+        ));
+    }
+
+    @GetMapping("/derivative-stats")
+    public ResponseEntity<MediaDerivativeService.Stats> getDerivativeStats() {
+        return ResponseEntity.ok(mediaDerivativeService.getStats());
+    }
+
+    @GetMapping("/info")
+    public ResponseEntity<List<MediaItem>> getMediaInfoBatch(@RequestParam List<String> ids) {
+        try {
+            if (ids.size() > MAX_INFO_IDS) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(mediaService.getMediaInfo(ids));
+        } catch (Exception e) {
+            log.error("Error fetching media info", e);
+            throw new RuntimeException("Failed to fetch media info", e);
+        }
+    }
+
+    @GetMapping("/{id}/info")
+    public ResponseEntity<MediaItem> getMediaInfo(@PathVariable String id) {
+        try {
+            List<MediaItem> media = mediaService.getMediaInfo(List.of(id));
+            return media.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(media.get(0));
+        } catch (Exception e) {
+            log.error("Error fetching info for media with id: {}", id, e);
+            throw new RuntimeException("Failed to fetch media info", e);
+        }
+    }
+
+    // Same headers as GET without touching the content
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> headMedia(
+        @PathVariable String id,
+        @RequestParam(value = "size", required = false) Integer size
+    ) {
+        try {
+            MediaDerivativeService.Resolution variant = size == null ? null : mediaDerivativeService.resolve(id, size);
+            String variantId = variant == null ? null : variant.variantId();
+            MediaService.MediaDownload download = mediaService.openMedia(variantId != null ? variantId : id);
+            MediaItem media = download.media();
+            Instant lastModified = download.file().getUploadDate().toInstant();
+            return withValidators(ResponseEntity.ok(), etagOf(media), lastModified, cacheControlFor(variant))
+                .contentType(MediaType.parseMediaType(media.getContentType()))
+                .contentLength(media.getSize())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .build();
+        } catch (Exception e) {
+            log.error("Error retrieving media headers with id: {}", id, e);
+            throw new RuntimeException("Failed to retrieve media: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<byte[]> getMedia(@PathVariable String id) {
+    public ResponseEntity<StreamingResponseBody> getMedia(
+        @PathVariable String id,
+        @RequestParam(value = "size", required = false) Integer size,
+        @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+        @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+        @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+        HttpServletRequest request
+    ) {
         try {
-            MediaItem media = mediaService.getMedia(id);
-            return ResponseEntity.ok()
+            MediaDerivativeService.Resolution variant = size == null ? null : mediaDerivativeService.resolve(id, size);
+            String variantId = variant == null ? null : variant.variantId();
+            MediaService.MediaDownload download = mediaService.openMedia(variantId != null ? variantId : id);
+            MediaItem media = download.media();
+            long length = media.getSize();
+            Instant lastModified = download.file().getUploadDate().toInstant();
+            String etag = etagOf(media);
+            CacheControl cacheControl = cacheControlFor(variant);
+
+            // Revalidation is answered from the file document alone
+            if (ifNoneMatch != null ? anyETagMatches(ifNoneMatch, etag) : notModifiedSince(ifModifiedSince, lastModified)) {
+                return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), etag, lastModified, cacheControl).build();
+            }
+
+            if (range != null && ifRangeMatches(ifRange, etag, lastModified)) {
+                if (range.contains(",")) {
+                    // Multipart byteranges responses are not supported
+                    return rangeNotSatisfiable(length);
+                }
+                Matcher matcher = RANGE_PATTERN.matcher(range.trim());
+                if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                    long start;
+                    long end;
+                    if (matcher.group(1).isEmpty()) {
+                        long suffix = Long.parseLong(matcher.group(2));
+                        if (suffix == 0) {
+                            return rangeNotSatisfiable(length);
+                        }
+                        start = Math.max(0, length - suffix);
+                        end = length - 1;
+                    } else {
+                        start = Long.parseLong(matcher.group(1));
+                        end = matcher.group(2).isEmpty() ? length - 1 : Long.parseLong(matcher.group(2));
+                    }
+
+                    // A range ending before it starts is malformed and ignored
+                    if (end >= start) {
+                        if (start >= length) {
+                            return rangeNotSatisfiable(length);
+                        }
+                        long last = Math.min(end, length - 1);
+                        ResponseEntity.BodyBuilder partial = withValidators(
+                                ResponseEntity.status(HttpStatus.PARTIAL_CONTENT), etag, lastModified, cacheControl)
+                            .contentType(MediaType.parseMediaType(media.getContentType()))
+                            .contentLength(last - start + 1)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + last + "/" + length)
+                            .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+                        if (sendCachedFile(request, download, start, last)) {
+                            return partial.build();
+                        }
+                        StreamingResponseBody body = out -> mediaService.writeRange(download, start, last, out);
+                        return partial.body(body);
+                    }
+                }
+            }
+
+            ResponseEntity.BodyBuilder full = withValidators(ResponseEntity.ok(), etag, lastModified, cacheControl)
                 .contentType(MediaType.parseMediaType(media.getContentType()))
-                .body(media.getData());
+                .contentLength(length)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (sendCachedFile(request, download, 0, length - 1)) {
+                return full.build();
+            }
+            StreamingResponseBody body = out -> mediaService.writeContent(download, out);
+            return full.body(body);
         } catch (Exception e) {
             log.error("Error retrieving media with id: {}", id, e);
             throw new RuntimeException("Failed to retrieve media: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Hands bytes start to end (inclusive) of a disk-cached file to Tomcat,
+     * which sends them with sendfile once the headers are written. Returns
+     * false when the file is not on disk or the connector cannot do this,
+     * and the body has to be streamed instead.
+     */
+    private boolean sendCachedFile(HttpServletRequest request, MediaService.MediaDownload download, long start, long end) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        Path file = mediaService.cachedFile(download);
+        if (file == null) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, start);
+        // Tomcat's end is exclusive
+        request.setAttribute(SENDFILE_END, end + 1);
+        return true;
+    }
+
+    private <B extends ResponseEntity.HeadersBuilder<B>> B withValidators(
+        B builder, String etag, Instant lastModified, CacheControl cacheControl
+    ) {
+        return builder
+            .eTag(etag)
+            .lastModified(lastModified)
+            .cacheControl(cacheControl);
+    }
+
+    // The original stands in while its variants are pending, so it must not be cached for good
+    private CacheControl cacheControlFor(MediaDerivativeService.Resolution variant) {
+        return variant != null && !variant.settled() ? PROVISIONAL_CACHE : IMMUTABLE_CACHE;
+    }
+
+    // Files uploaded before content hashing fall back to their id, which is just as stable
+    private String etagOf(MediaItem media) {
+        return "\"" + (media.getContentHash() != null ? media.getContentHash() : media.getId()) + "\"";
+    }
+
+    // If-None-Match uses the weak comparison, so W/ prefixes are ignored
+    private boolean anyETagMatches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean notModifiedSince(String ifModifiedSince, Instant lastModified) {
+        Instant since = parseHttpDate(ifModifiedSince);
+        return since != null && lastModified.getEpochSecond() <= since.getEpochSecond();
+    }
+
+    // An If-Range validator that no longer matches means the client's copy is stale, so send the whole file
+    private boolean ifRangeMatches(String ifRange, String etag, Instant lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        String validator = ifRange.trim();
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            // Strong comparison: weak tags never match
+            return validator.equals(etag);
+        }
+        Instant date = parseHttpDate(validator);
+        return date != null && date.getEpochSecond() == lastModified.getEpochSecond();
+    }
+
+    private Instant parseHttpDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+            .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+            .build();
+    }
+
+    public record UploadRequest(String filename, String contentType, long size, String description) {}
+}
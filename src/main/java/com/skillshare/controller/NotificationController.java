@@ -1,7 +1,8 @@
 package com.skillshare.controller;
 
+import com.skillshare.model.CursorPage;
 import com.skillshare.model.Notification;
-import com.skillshare.repository.NotificationRepository;
+import com.skillshare.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -16,21 +17,29 @@ import java.util.Map;
 @RequestMapping("/notifications")
 @RequiredArgsConstructor
 public class NotificationController {
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
 
     @GetMapping
     public ResponseEntity<List<Notification>> getNotifications(
-        @RequestParam(required = false) Boolean unreadOnly
+        @RequestParam(required = false) Boolean unreadOnly,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit
     ) {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String userId = auth.getName();
             
-            List<Notification> notifications = unreadOnly != null && unreadOnly
-                ? notificationRepository.findByUserIdAndReadOrderByCreatedAtDesc(userId, false)
-                : notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
-                
-            return ResponseEntity.ok(notifications);
+            CursorPage<Notification> page = notificationService.getNotifications(
+                userId, unreadOnly != null && unreadOnly, cursor, limit
+            );
+            
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching notifications", e);
             throw new RuntimeException("Failed to fetch notifications", e);
@@ -43,7 +52,7 @@ public class NotificationController {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String userId = auth.getName();
             
-            long count = notificationRepository.countByUserIdAndRead(userId, false);
+            long count = notificationService.countUnread(userId);
             return ResponseEntity.ok(Map.of("count", count));
         } catch (Exception e) {
             log.error("Error fetching unread notification count", e);
@@ -57,12 +66,8 @@ public class NotificationController {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String userId = auth.getName();
             
-            return notificationRepository.findById(id)
-                .filter(notification -> notification.getUserId().equals(userId))
-                .map(notification -> {
-                    notification.setRead(true);
-                    return ResponseEntity.ok(notificationRepository.save(notification));
-                })
+            return notificationService.markAsRead(userId, id)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             log.error("Error marking notification as read: {}", id, e);
@@ -76,11 +81,7 @@ public class NotificationController {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String userId = auth.getName();
             
-            List<Notification> unreadNotifications = 
-                notificationRepository.findByUserIdAndReadOrderByCreatedAtDesc(userId, false);
-                
-            unreadNotifications.forEach(notification -> notification.setRead(true));
-            notificationRepository.saveAll(unreadNotifications);
+            notificationService.markAllAsRead(userId);
             
             return ResponseEntity.ok().build();
         } catch (Exception e) {
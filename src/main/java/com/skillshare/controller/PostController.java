@@ -1,7 +1,10 @@
 package com.skillshare.controller;
 
+import com.skillshare.model.MediaItem;
 import com.skillshare.model.Post;
 import com.skillshare.repository.PostRepository;
+import com.skillshare.service.MediaService;
+import com.skillshare.service.PlanRecommendationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +20,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PostController {
     private final PostRepository postRepository;
+    private final PlanRecommendationService planRecommendationService;
+    private final MediaService mediaService;
     
 
     @GetMapping
@@ -51,6 +56,7 @@ public class PostController {
                 .build();
                 
             Post savedPost = postRepository.save(newPost);
+            planRecommendationService.recordPost(null, savedPost);
             log.debug("Post created successfully with id: {}", savedPost.getId());
             
             return ResponseEntity.ok(savedPost);
@@ -91,7 +97,9 @@ public class PostController {
                             .updatedAt(Instant.now())
                             .build();
                             
-                        return ResponseEntity.ok(postRepository.save(updatedPost));
+                        Post savedPost = postRepository.save(updatedPost);
+                        planRecommendationService.recordPost(existingPost, savedPost);
+                        return ResponseEntity.ok(savedPost);
                     })
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
@@ -104,11 +112,26 @@ public class PostController {
     public ResponseEntity<Void> deletePost(@PathVariable String id) {
         try {
             log.debug("Deleting post with id: {}", id);
-            postRepository.deleteById(id);
+            postRepository.findById(id).ifPresent(post -> {
+                postRepository.deleteById(id);
+                planRecommendationService.recordPost(post, null);
+                if (post.getMedia() != null) {
+                    post.getMedia().stream().map(MediaItem::getId).forEach(this::deleteMedia);
+                }
+            });
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             log.error("Error deleting post with id: {}", id, e);
             throw new RuntimeException("Failed to delete post", e);
         }
     }
-}
\ No newline at end of file
+
+    // The post is already gone, so a media item that fails to delete is only logged
+    private void deleteMedia(String mediaId) {
+        try {
+            mediaService.deleteMedia(mediaId);
+        } catch (Exception e) {
+            log.warn("Failed to delete media {} of a deleted post", mediaId, e);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.skillshare.controller;
 
+import com.skillshare.model.CursorPage;
 import com.skillshare.model.MediaItem;
+import com.skillshare.model.PublicProfile;
 import com.skillshare.model.User;
+import com.skillshare.model.UserSummary;
 import com.skillshare.repository.UserRepository;
+import com.skillshare.service.FollowService;
 import com.skillshare.service.MediaService;
+import com.skillshare.service.SuggestionService;
+import com.skillshare.service.UserDirectoryService;
+import com.skillshare.service.UserNameIndex;
+import com.skillshare.service.UserSummaryCache;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,7 +24,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -26,28 +33,94 @@ import java.util.Map;
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
+    private static final int MAX_SUMMARY_IDS = 100;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final MediaService mediaService;
+    private final FollowService followService;
+    private final UserDirectoryService userDirectoryService;
+    private final SuggestionService suggestionService;
+    private final UserSummaryCache userSummaryCache;
+    private final UserNameIndex userNameIndex;
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<List<PublicProfile>> getAllUsers(
+        @RequestParam(defaultValue = "NAME") UserDirectoryService.SortOrder sort,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit
+    ) {
         try {
-            List<User> users = userRepository.findAll();
-            // Clear sensitive data before returning the users
-            users.forEach(user -> {
-                user.setPassword(null);
-                user.setEmail(null);
-                user.setAddress(null);
-                user.setBirthday(null);
-            });
-            return ResponseEntity.ok(users);
+            return toPageResponse(userDirectoryService.getDirectory(sort, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching all users", e);
             return ResponseEntity.status(500).body(null);
         }
     }
 
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<UserSummary>> getSuggestions(
+        @RequestParam(defaultValue = "10") int limit
+    ) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+
+            List<String> suggestedIds = suggestionService.suggest(userId, Math.max(limit, 0));
+            return ResponseEntity.ok(userDirectoryService.findSummaries(suggestedIds));
+        } catch (Exception e) {
+            log.error("Error fetching follow suggestions", e);
+            throw new RuntimeException("Failed to fetch follow suggestions", e);
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<UserSummary>> suggestUsers(
+        @RequestParam("q") String query,
+        @RequestParam(required = false) Integer limit
+    ) {
+        try {
+            return ResponseEntity.ok(userNameIndex.suggest(query, limit));
+        } catch (Exception e) {
+            log.error("Error suggesting users for query: {}", query, e);
+            throw new RuntimeException("Failed to suggest users", e);
+        }
+    }
+
+    @GetMapping("/summaries")
+    public ResponseEntity<List<UserSummary>> getUserSummaries(@RequestParam List<String> ids) {
+        try {
+            if (ids.size() > MAX_SUMMARY_IDS) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(userSummaryCache.getAll(ids));
+        } catch (Exception e) {
+            log.error("Error fetching user summaries", e);
+            throw new RuntimeException("Failed to fetch user summaries", e);
+        }
+    }
+
+    @PostMapping("/relationships")
+    public ResponseEntity<List<FollowService.Relationship>> getRelationships(
+        @RequestBody RelationshipsRequest request
+    ) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String userId = auth.getName();
+
+            if (request.userIds() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(followService.getRelationships(userId, request.userIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching relationships", e);
+            throw new RuntimeException("Failed to fetch relationships", e);
+        }
+    }
 
     @GetMapping("/{id}")
     public ResponseEntity<User> getUser(@PathVariable String id) {
@@ -105,21 +178,16 @@ public ResponseEntity<User> getPrivateProfile(@PathVariable String id) {
                 return ResponseEntity.status(403).build();
             }
 
-            return userRepository.findById(id)
-                .map(existingUser -> {
-                    existingUser.setFirstName(updatedUser.getFirstName());
-                    existingUser.setLastName(updatedUser.getLastName());
-                    existingUser.setAddress(updatedUser.getAddress());
-                    existingUser.setBirthday(updatedUser.getBirthday());
-                    existingUser.setAvatarUrl(updatedUser.getAvatarUrl());
-                    existingUser.setBio(updatedUser.getBio());
-                    existingUser.setUpdatedAt(Instant.now());
-
-                    if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
-                        existingUser.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
-                    }
-
-                    User savedUser = userRepository.save(existingUser);
+            String encodedPassword = null;
+            if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
+                encodedPassword = passwordEncoder.encode(updatedUser.getPassword());
+            }
+
+            // Only the profile fields are written, so concurrent follows keep their counts
+            return userRepository.updateProfile(id, updatedUser, encodedPassword)
+                .map(savedUser -> {
+                    userSummaryCache.put(savedUser);
+                    userNameIndex.update(savedUser);
                     savedUser.setPassword(null);
                     return ResponseEntity.ok(savedUser);
                 })
@@ -143,6 +211,7 @@ public ResponseEntity<User> getPrivateProfile(@PathVariable String id) {
             return userRepository.findById(id)
                 .map(user -> {
                     userRepository.deleteById(id);
+                    userSummaryCache.evict(id);
                     return ResponseEntity.ok().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -162,25 +231,16 @@ public ResponseEntity<User> getPrivateProfile(@PathVariable String id) {
                 return ResponseEntity.badRequest().build();
             }
 
-            User follower = userRepository.findById(followerId).orElse(null);
-            User following = userRepository.findById(id).orElse(null);
-
-            if (follower == null || following == null) {
+            if (!userRepository.existsById(id)) {
                 return ResponseEntity.notFound().build();
             }
 
-            if (!follower.getFollowingIds().contains(id)) {
-                follower.getFollowingIds().add(id);
-                following.getFollowerIds().add(followerId);
-
-                userRepository.save(follower);
-                userRepository.save(following);
-            }
+            FollowService.FollowCounts counts = followService.follow(followerId, id);
 
             return ResponseEntity.ok(Map.of(
                 "following", true,
-                "followersCount", following.getFollowerIds().size(),
-                "followingCount", following.getFollowingIds().size()
+                "followersCount", counts.followersCount(),
+                "followingCount", counts.followingCount()
             ));
         } catch (Exception e) {
             log.error("Error following user: {}", id, e);
@@ -194,23 +254,16 @@ public ResponseEntity<User> getPrivateProfile(@PathVariable String id) {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             String followerId = auth.getName();
 
-            User follower = userRepository.findById(followerId).orElse(null);
-            User following = userRepository.findById(id).orElse(null);
-
-            if (follower == null || following == null) {
+            if (!userRepository.existsById(id)) {
                 return ResponseEntity.notFound().build();
             }
 
-            follower.getFollowingIds().remove(id);
-            following.getFollowerIds().remove(followerId);
-
-            userRepository.save(follower);
-            userRepository.save(following);
+            FollowService.FollowCounts counts = followService.unfollow(followerId, id);
 
             return ResponseEntity.ok(Map.of(
                 "following", false,
-                "followersCount", following.getFollowerIds().size(),
-                "followingCount", following.getFollowingIds().size()
+                "followersCount", counts.followersCount(),
+                "followingCount", counts.followingCount()
             ));
         } catch (Exception e) {
             log.error("Error unfollowing user: {}", id, e);
@@ -219,20 +272,18 @@ public ResponseEntity<User> getPrivateProfile(@PathVariable String id) {
     }
 
     @GetMapping("/{id}/followers")
-    public ResponseEntity<List<User>> getFollowers(@PathVariable String id) {
+    public ResponseEntity<List<UserSummary>> getFollowers(
+        @PathVariable String id,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit
+    ) {
         try {
-            return userRepository.findById(id)
-                .map(user -> {
-                    List<User> followers = userRepository.findAllById(user.getFollowerIds());
-                    followers.forEach(follower -> {
-                        follower.setPassword(null);
-                        follower.setEmail(null);
-                        follower.setAddress(null);
-                        follower.setBirthday(null);
-                    });
-                    return ResponseEntity.ok(followers);
-                })
-                .orElse(ResponseEntity.notFound().build());
+            if (!userRepository.existsById(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return toPageResponse(followService.getFollowers(id, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching followers for user: {}", id, e);
             throw new RuntimeException("Failed to fetch followers", e);
@@ -240,20 +291,18 @@ public ResponseEntity<User> getPrivateProfile(@PathVariable String id) {
     }
 
     @GetMapping("/{id}/following")
-    public ResponseEntity<List<User>> getFollowing(@PathVariable String id) {
+    public ResponseEntity<List<UserSummary>> getFollowing(
+        @PathVariable String id,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit
+    ) {
         try {
-            return userRepository.findById(id)
-                .map(user -> {
-                    List<User> following = userRepository.findAllById(user.getFollowingIds());
-                    following.forEach(followed -> {
-                        followed.setPassword(null);
-                        followed.setEmail(null);
-                        followed.setAddress(null);
-                        followed.setBirthday(null);
-                    });
-                    return ResponseEntity.ok(following);
-                })
-                .orElse(ResponseEntity.notFound().build());
+            if (!userRepository.existsById(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return toPageResponse(followService.getFollowing(id, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching following for user: {}", id, e);
             throw new RuntimeException("Failed to fetch following", e);
@@ -277,11 +326,10 @@ public ResponseEntity<?> uploadProfilePicture(
         // Save image via MediaService
         MediaItem mediaItem = mediaService.saveMedia(image, description);
 
-        return userRepository.findById(id)
+        return userRepository.updateAvatarUrl(id, "/api/media/" + mediaItem.getId()) // URL to fetch the image
             .map(user -> {
-                user.setAvatarUrl("/api/media/" + mediaItem.getId()); // URL to fetch the image
-                user.setUpdatedAt(Instant.now());
-                userRepository.save(user);
+                userSummaryCache.put(user);
+                userNameIndex.update(user);
                 return ResponseEntity.ok().body(Map.of("avatarUrl", user.getAvatarUrl()));
             })
             .orElse(ResponseEntity.notFound().build());
@@ -290,4 +338,14 @@ public ResponseEntity<?> uploadProfilePicture(
         return ResponseEntity.status(500).body("Failed to upload profile picture");
     }
     }
-}
\ No newline at end of file
+
+    private <T> ResponseEntity<List<T>> toPageResponse(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    public record RelationshipsRequest(List<String> userIds) {}
+}
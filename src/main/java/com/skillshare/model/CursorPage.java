@@ -0,0 +1,23 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    // List endpoints return the items as the body and the cursor in this header
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    @Builder.Default
+    private List<T> items = new ArrayList<>();
+
+    // Opaque cursor for the next page, null when there are no more results
+    private String nextCursor;
+}
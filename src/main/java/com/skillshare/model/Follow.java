@@ -0,0 +1,37 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "follows")
+@CompoundIndexes({
+    @CompoundIndex(name = "follower_followee_idx", def = "{'follower_id': 1, 'followee_id': 1}", unique = true),
+    @CompoundIndex(name = "followee_follower_idx", def = "{'followee_id': 1, 'follower_id': 1}", unique = true),
+    @CompoundIndex(name = "follower_created_idx", def = "{'follower_id': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "followee_created_idx", def = "{'followee_id': 1, 'created_at': -1, '_id': -1}")
+})
+public class Follow {
+    @Id
+    private String id;
+    
+    @Field("follower_id")
+    private String followerId;
+    
+    @Field("followee_id")
+    private String followeeId;
+    
+    @Field("created_at")
+    private Instant createdAt;
+}
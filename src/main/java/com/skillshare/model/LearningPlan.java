@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import java.time.Instant;
@@ -16,6 +18,13 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "learning_plans")
+@CompoundIndexes({
+    @CompoundIndex(name = "skill_level_created_idx", def = "{'skill': 1, 'skill_level': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "skill_created_idx", def = "{'skill': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "level_created_idx", def = "{'skill_level': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "created_idx", def = "{'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "user_created_idx", def = "{'user_id': 1, 'created_at': -1, '_id': -1}")
+})
 public class LearningPlan {
     @Id
     private String id;
@@ -0,0 +1,41 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+// Catalog view of a learning plan: everything except the lessons themselves
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LearningPlanSummary {
+    @Id
+    private String id;
+    
+    @Field("user_id")
+    private String userId;
+    
+    private String title;
+    private String thumbnail;
+    private String skill;
+    
+    @Field("skill_level")
+    private String skillLevel;
+    
+    private String description;
+    private String duration;
+    
+    @Field("lesson_count")
+    private int lessonCount;
+    
+    @Field("created_at")
+    private Instant createdAt;
+    
+    @Field("updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,44 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "learning_progress")
+@CompoundIndex(name = "user_plan_idx", def = "{'user_id': 1, 'plan_id': 1}", unique = true)
+public class LearningProgress {
+    @Id
+    private String id;
+    
+    @Field("user_id")
+    private String userId;
+    
+    // Lets lesson edits and plan deletion reach every enrolled user's record
+    @Indexed(name = "plan_idx")
+    @Field("plan_id")
+    private String planId;
+    
+    // Completed lesson bitset: word "n" holds lessons 64n .. 64n + 63
+    @Builder.Default
+    @Field("completed_words")
+    private Map<String, Long> completedWords = new HashMap<>();
+    
+    @Field("created_at")
+    private Instant createdAt;
+    
+    @Field("updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,19 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Body of a lesson PATCH: fields left out of the request stay null and are not touched
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonPatch {
+    private String title;
+    private String description;
+    private String videoId;
+    private List<String> documentIds;
+}
@@ -0,0 +1,37 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+/**
+ * Maps the SHA-256 of an uploaded file's content to the single GridFS file
+ * holding it. The hash is the _id, so it is unique.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "media_hashes")
+public class MediaHash {
+    @Id
+    private String hash;
+    
+    @Field("file_id")
+    private String fileId;
+    
+    // Undeleted media items using this content; the content is removed when it reaches zero
+    @Field("ref_count")
+    private long refCount;
+    
+    @Field("created_at")
+    private Instant createdAt;
+    
+    @Field("updated_at")
+    private Instant updatedAt;
+}
@@ -17,6 +17,8 @@ public class MediaItem {
     private String description;
     private String type;
     private long size;
+    // SHA-256 of the content, hex encoded
+    private String contentHash;
     private String createdAt;
     
     @Transient
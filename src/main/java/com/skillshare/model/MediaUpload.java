@@ -0,0 +1,48 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+/**
+ * A resumable upload in progress. The bytes received so far are kept in a
+ * temp file on the node that accepted the upload.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "media_uploads")
+public class MediaUpload {
+    @Id
+    private String id;
+    
+    @Field("user_id")
+    private String userId;
+    
+    private String filename;
+    
+    @Field("content_type")
+    private String contentType;
+    
+    private String description;
+    
+    // Declared total size in bytes
+    private long size;
+    
+    // Bytes received so far; the next chunk must start here
+    private long received;
+    
+    @Field("created_at")
+    private Instant createdAt;
+    
+    @Indexed(name = "updated_at_idx")
+    @Field("updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,51 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "notification_buckets")
+@CompoundIndexes({
+    @CompoundIndex(name = "user_day_idx", def = "{'user_id': 1, 'day': -1, '_id': -1}"),
+    // One bucket per sequence number, so concurrent first pushes cannot open two; buckets from before seq are exempt
+    @CompoundIndex(name = "user_day_seq_idx", def = "{'user_id': 1, 'day': 1, 'seq': 1}", unique = true,
+        partialFilter = "{'seq': {'$exists': true}}")
+})
+public class NotificationBucket {
+    @Id
+    private String id;
+    
+    @Field("user_id")
+    private String userId;
+    
+    // Start of the UTC day the bucket covers
+    private Instant day;
+    
+    // Position among the day's buckets; the next one is opened once this one is full
+    private Integer seq;
+    
+    private int count;
+    
+    @Field("unread_count")
+    private int unreadCount;
+    
+    // Appended in arrival order, newest last
+    @Builder.Default
+    private List<Notification> notifications = new ArrayList<>();
+    
+    @Field("updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,43 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+// Read-only view of a users document with the fields anyone may see
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PublicProfile {
+    public static final String[] FIELDS = {
+        "first_name", "last_name", "avatar_url", "bio", "followers_count", "following_count", "created_at"
+    };
+
+    @Id
+    private String id;
+    
+    @Field("first_name")
+    private String firstName;
+    
+    @Field("last_name")
+    private String lastName;
+    
+    @Field("avatar_url")
+    private String avatarUrl;
+    
+    private String bio;
+    
+    @Field("followers_count")
+    private long followersCount;
+    
+    @Field("following_count")
+    private long followingCount;
+    
+    @Field("created_at")
+    private Instant createdAt;
+}
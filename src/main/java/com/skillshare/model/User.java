@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -17,6 +19,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "users")
+@CompoundIndexes({
+    @CompoundIndex(name = "first_name_idx", def = "{'first_name': 1, '_id': 1}"),
+    @CompoundIndex(name = "created_at_idx", def = "{'created_at': -1, '_id': -1}")
+})
 public class User {
     @Id
     private String id;
@@ -41,6 +47,7 @@ public class User {
     
     private String bio;
     
+    // Legacy embedded follow lists, superseded by the follows collection
     @Builder.Default
     @Field("following_ids")
     private List<String> followingIds = new ArrayList<>();
@@ -49,6 +56,12 @@ public class User {
     @Field("follower_ids")
     private List<String> followerIds = new ArrayList<>();
     
+    @Field("following_count")
+    private long followingCount;
+    
+    @Field("followers_count")
+    private long followersCount;
+    
     @Field("created_at")
     private Instant createdAt;
     
@@ -0,0 +1,31 @@
+package com.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+// Read-only view of a users document carrying only what author and follower lists render
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummary {
+    public static final String[] FIELDS = {"first_name", "last_name", "avatar_url", "bio"};
+
+    @Id
+    private String id;
+    
+    @Field("first_name")
+    private String firstName;
+    
+    @Field("last_name")
+    private String lastName;
+    
+    @Field("avatar_url")
+    private String avatarUrl;
+    
+    private String bio;
+}
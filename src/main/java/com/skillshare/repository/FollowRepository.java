@@ -0,0 +1,14 @@
+package com.skillshare.repository;
+
+import com.skillshare.model.Follow;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.List;
+
+public interface FollowRepository extends MongoRepository<Follow, String> {
+    List<Follow> findByFolloweeId(String followeeId);
+    List<Follow> findByFollowerId(String followerId);
+    boolean existsByFollowerIdAndFolloweeId(String followerId, String followeeId);
+    long deleteByFollowerIdAndFolloweeId(String followerId, String followeeId);
+    long countByFollowerId(String followerId);
+    long countByFolloweeId(String followeeId);
+}
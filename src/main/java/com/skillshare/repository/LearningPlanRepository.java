@@ -5,7 +5,7 @@ import com.skillshare.model.LearningPlan;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 //lerningPlansrepository
-public interface LearningPlanRepository extends MongoRepository<LearningPlan, String> {
+public interface LearningPlanRepository extends MongoRepository<LearningPlan, String>, LearningPlanRepositoryCustom {
     List<LearningPlan> findByUserId(String userId);
     List<LearningPlan> findBySkill(String skill);
     List<LearningPlan> findBySkillLevel(String skillLevel);
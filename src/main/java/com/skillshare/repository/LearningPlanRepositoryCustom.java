@@ -0,0 +1,35 @@
+package com.skillshare.repository;
+
+import com.skillshare.model.CursorPage;
+import com.skillshare.model.LearningPlanSummary;
+import com.skillshare.model.Lesson;
+import com.skillshare.model.LessonPatch;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface LearningPlanRepositoryCustom {
+    /**
+     * Newest-first page of plan summaries, optionally filtered by skill
+     * and/or skill level, continuing after the given cursor.
+     */
+    CursorPage<LearningPlanSummary> findSummaryPage(String skill, String skillLevel, String cursor, int limit);
+
+    List<LearningPlanSummary> findSummariesByUserId(String userId);
+
+    List<LearningPlanSummary> findSummariesByIds(Collection<String> ids);
+
+    boolean hasLesson(String planId, int index);
+
+    /**
+     * A slice of the plan's lessons, or empty when the plan does not exist.
+     */
+    Optional<List<Lesson>> findLessons(String planId, int offset, int limit);
+
+    /**
+     * Sets the non-null fields of the patch on one lesson of a plan owned
+     * by the user. Returns false when no such plan or lesson exists.
+     */
+    boolean patchLesson(String planId, String userId, int index, LessonPatch patch);
+}
@@ -0,0 +1,132 @@
+package com.skillshare.repository;
+
+import com.skillshare.model.CursorPage;
+import com.skillshare.model.LearningPlan;
+import com.skillshare.model.LearningPlanSummary;
+import com.skillshare.model.Lesson;
+import com.skillshare.model.LessonPatch;
+import com.skillshare.service.CursorCodec;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class LearningPlanRepositoryImpl implements LearningPlanRepositoryCustom {
+    private static final String COLLECTION = "learning_plans";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public CursorPage<LearningPlanSummary> findSummaryPage(String skill, String skillLevel, String cursor, int limit) {
+        List<Criteria> filters = new ArrayList<>();
+        if (skill != null) {
+            filters.add(Criteria.where("skill").is(skill));
+        }
+        if (skillLevel != null) {
+            filters.add(Criteria.where("skill_level").is(skillLevel));
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            filters.add(CursorCodec.olderThan("created_at", cursor));
+        }
+        Criteria criteria = filters.isEmpty() ? new Criteria() : new Criteria().andOperator(filters);
+
+        List<LearningPlanSummary> plans = findSummaries(criteria, limit + 1);
+        String nextCursor = null;
+        if (plans.size() > limit) {
+            plans = plans.subList(0, limit);
+            LearningPlanSummary last = plans.get(limit - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return CursorPage.<LearningPlanSummary>builder()
+            .items(plans)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    @Override
+    public List<LearningPlanSummary> findSummariesByUserId(String userId) {
+        return findSummaries(Criteria.where("user_id").is(userId), 0);
+    }
+
+    @Override
+    public List<LearningPlanSummary> findSummariesByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<ObjectId> objectIds = ids.stream().filter(ObjectId::isValid).map(ObjectId::new).toList();
+        return findSummaries(Criteria.where("_id").in(objectIds), 0);
+    }
+
+    @Override
+    public boolean hasLesson(String planId, int index) {
+        return mongoTemplate.exists(
+            Query.query(Criteria.where("_id").is(planId).and("lessons." + index).exists(true)),
+            LearningPlan.class
+        );
+    }
+
+    @Override
+    public Optional<List<Lesson>> findLessons(String planId, int offset, int limit) {
+        Query query = Query.query(Criteria.where("_id").is(planId));
+        query.fields().include("_id").slice("lessons", offset, limit);
+        return Optional.ofNullable(mongoTemplate.findOne(query, LearningPlan.class))
+            .map(plan -> plan.getLessons() == null ? List.<Lesson>of() : plan.getLessons());
+    }
+
+    @Override
+    public boolean patchLesson(String planId, String userId, int index, LessonPatch patch) {
+        String path = "lessons." + index;
+        Update update = new Update().set("updated_at", Instant.now());
+        if (patch.getTitle() != null) {
+            update.set(path + ".title", patch.getTitle());
+        }
+        if (patch.getDescription() != null) {
+            update.set(path + ".description", patch.getDescription());
+        }
+        if (patch.getVideoId() != null) {
+            update.set(path + ".video_id", patch.getVideoId());
+        }
+        if (patch.getDocumentIds() != null) {
+            update.set(path + ".documents", patch.getDocumentIds());
+        }
+
+        Query query = Query.query(Criteria.where("_id").is(planId)
+            .and("user_id").is(userId)
+            .and(path).exists(true));
+        return mongoTemplate.updateFirst(query, update, LearningPlan.class).getMatchedCount() > 0;
+    }
+
+    // Newest first, with the lessons array reduced to its length on the server
+    private List<LearningPlanSummary> findSummaries(Criteria criteria, int limit) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(criteria));
+        stages.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, "created_at").and(Sort.by(Sort.Direction.DESC, "_id"))));
+        if (limit > 0) {
+            stages.add(Aggregation.limit(limit));
+        }
+        stages.add(Aggregation
+            .project("user_id", "title", "thumbnail", "skill", "skill_level", "description", "duration",
+                "created_at", "updated_at")
+            .and(ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull("lessons").then(List.of())))
+            .as("lesson_count"));
+
+        return mongoTemplate
+            .aggregate(Aggregation.newAggregation(stages), COLLECTION, LearningPlanSummary.class)
+            .getMappedResults();
+    }
+}
@@ -0,0 +1,13 @@
+package com.skillshare.repository;
+
+import com.skillshare.model.LearningProgress;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.List;
+import java.util.Optional;
+
+public interface LearningProgressRepository extends MongoRepository<LearningProgress, String> {
+    List<LearningProgress> findByUserId(String userId);
+    Optional<LearningProgress> findByUserIdAndPlanId(String userId, String planId);
+    void deleteByUserIdAndPlanId(String userId, String planId);
+    void deleteByPlanId(String planId);
+}
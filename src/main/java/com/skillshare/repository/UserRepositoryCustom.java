@@ -0,0 +1,16 @@
+package com.skillshare.repository;
+
+import com.skillshare.model.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+    /**
+     * Sets the editable profile fields of the user, and the password when
+     * one is given, leaving follow lists and counters as they are in the
+     * database. Returns the updated user, or empty when there is none.
+     */
+    Optional<User> updateProfile(String id, User profile, String encodedPassword);
+
+    Optional<User> updateAvatarUrl(String id, String avatarUrl);
+}
@@ -0,0 +1,47 @@
+package com.skillshare.repository;
+
+import com.skillshare.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<User> updateProfile(String id, User profile, String encodedPassword) {
+        Update update = new Update()
+            .set("first_name", profile.getFirstName())
+            .set("last_name", profile.getLastName())
+            .set("address", profile.getAddress())
+            .set("birthday", profile.getBirthday())
+            .set("avatar_url", profile.getAvatarUrl())
+            .set("bio", profile.getBio())
+            .set("updated_at", Instant.now());
+        if (encodedPassword != null) {
+            update.set("password", encodedPassword);
+        }
+        return modify(id, update);
+    }
+
+    @Override
+    public Optional<User> updateAvatarUrl(String id, String avatarUrl) {
+        return modify(id, new Update().set("avatar_url", avatarUrl).set("updated_at", Instant.now()));
+    }
+
+    private Optional<User> modify(String id, Update update) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(id)),
+            update,
+            FindAndModifyOptions.options().returnNew(true),
+            User.class
+        ));
+    }
+}
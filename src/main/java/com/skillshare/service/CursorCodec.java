@@ -0,0 +1,88 @@
+package com.skillshare.service;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions of the form (created_at, _id) or (string key, _id)
+ * into opaque cursors and turns them back into "strictly after" criteria.
+ */
+public final class CursorCodec {
+    private static final String SEPARATOR = ":";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Instant createdAt, String id) {
+        String raw = createdAt.toEpochMilli() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Position decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.indexOf(SEPARATOR);
+            return new Position(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, split))), raw.substring(split + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Criteria matching documents after the cursor in a
+     * (timeField desc, _id desc) ordering.
+     */
+    public static Criteria olderThan(String timeField, String cursor) {
+        Position position = decode(cursor);
+        Object id = ObjectId.isValid(position.id()) ? new ObjectId(position.id()) : position.id();
+        return new Criteria().orOperator(
+            Criteria.where(timeField).lt(position.createdAt()),
+            Criteria.where(timeField).is(position.createdAt()).and("_id").lt(id)
+        );
+    }
+
+    // A null key is written as the id alone, so it stays distinct from an empty key
+    public static String encodeKey(String key, String id) {
+        String raw = key == null ? id : id + SEPARATOR + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Criteria matching documents after the cursor in a
+     * (keyField asc, _id asc) ordering, where documents with a null or
+     * missing key sort first as they do in MongoDB.
+     */
+    public static Criteria afterKey(String keyField, String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        int split = raw.indexOf(SEPARATOR);
+        String id = split < 0 ? raw : raw.substring(0, split);
+        String key = split < 0 ? null : raw.substring(split + 1);
+        if (id.isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        Object idValue = ObjectId.isValid(id) ? new ObjectId(id) : id;
+        if (key == null) {
+            // Still among the null keys: the rest of them, then every document with a key
+            return new Criteria().orOperator(
+                Criteria.where(keyField).is(null).and("_id").gt(idValue),
+                Criteria.where(keyField).ne(null)
+            );
+        }
+        return new Criteria().orOperator(
+            Criteria.where(keyField).gt(key),
+            Criteria.where(keyField).is(key).and("_id").gt(idValue)
+        );
+    }
+
+    public record Position(Instant createdAt, String id) {
+    }
+}
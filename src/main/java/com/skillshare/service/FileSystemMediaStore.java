@@ -0,0 +1,84 @@
+package com.skillshare.service;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Content as plain files under a root directory, sharded two levels deep
+ * by the low bytes of the id (the high bytes are a timestamp and would
+ * put a day's uploads in one directory). Files are written to a temp
+ * name in their final directory, synced and renamed into place.
+ */
+@Component
+public class FileSystemMediaStore implements MediaStore {
+    public static final String NAME = "filesystem";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Value("${media.filesystem-store.dir:data/media}")
+    private String rootName;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public long put(ObjectId id, InputStream content) throws IOException {
+        Path target = pathOf(id);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), id.toHexString(), TEMP_SUFFIX);
+        try {
+            long length = Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return length;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(ObjectId id) throws IOException {
+        return Files.newInputStream(pathOf(id));
+    }
+
+    @Override
+    public void writeRange(ObjectId id, long start, long end, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(id), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end - position + 1, target);
+                if (transferred <= 0) {
+                    throw new IOException("Stored media is shorter than expected: " + id);
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    @Override
+    public void delete(ObjectId id) throws IOException {
+        Files.deleteIfExists(pathOf(id));
+    }
+
+    private Path pathOf(ObjectId id) {
+        String hex = id.toHexString();
+        return Path.of(rootName, hex.substring(22, 24), hex.substring(20, 22), hex);
+    }
+}
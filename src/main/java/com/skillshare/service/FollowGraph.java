@@ -0,0 +1,365 @@
+package com.skillshare.service;
+
+import com.skillshare.model.Follow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory copy of the follows collection. User ids are mapped to dense
+ * ints and each user's followees (and, in a mirrored copy, followers) are
+ * stored as a sorted row of a compressed-sparse-row (offsets/targets) pair
+ * of int arrays. Follows made after the last build are kept in small
+ * per-user delta sets and folded into the arrays once enough pile up.
+ * Local updates only cover follows made through this instance, so the
+ * graph is periodically rebuilt from the collection.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FollowGraph {
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${suggestions.compaction-threshold:50000}")
+    private int compactionThreshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Integer> indexes = new HashMap<>();
+    private List<String> ids = new ArrayList<>();
+
+    private Adjacency following = new Adjacency();
+    private Adjacency followers = new Adjacency();
+    private int pendingChanges;
+    // Edge changes made while a load is scanning, replayed onto its result; null otherwise
+    private List<EdgeChange> changesDuringLoad;
+
+    /**
+     * Builds a fresh graph from the follows collection without blocking
+     * readers, then swaps it in. Follows and unfollows recorded during the
+     * scan are replayed onto the new graph, so none are lost.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${suggestions.graph-reload-cron:0 45 3 * * *}")
+    public synchronized void load() {
+        long started = System.currentTimeMillis();
+        Query query = new Query();
+        query.fields().include("follower_id", "followee_id").exclude("_id");
+
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<String, Integer> newIndexes = new HashMap<>();
+        List<String> newIds = new ArrayList<>();
+        IntList from = new IntList();
+        IntList to = new IntList();
+        Adjacency newFollowing = new Adjacency();
+        Adjacency newFollowers = new Adjacency();
+        try {
+            try (Stream<Document> edges = mongoTemplate.stream(
+                query, Document.class, mongoTemplate.getCollectionName(Follow.class)
+            )) {
+                edges.forEach(edge -> {
+                    from.add(intern(newIndexes, newIds, edge.getString("follower_id")));
+                    to.add(intern(newIndexes, newIds, edge.getString("followee_id")));
+                });
+            }
+            newFollowing.build(newIds.size(), from, to);
+            newFollowers.build(newIds.size(), to, from);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            indexes = newIndexes;
+            ids = newIds;
+            following = newFollowing;
+            followers = newFollowers;
+            pendingChanges = 0;
+            List<EdgeChange> changes = changesDuringLoad;
+            changesDuringLoad = null;
+            for (EdgeChange change : changes) {
+                if (change.added()) {
+                    applyAdd(change.followerId(), change.followeeId());
+                } else {
+                    applyRemove(change.followerId(), change.followeeId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Follow graph loaded: {} users, {} edges in {} ms",
+            newIds.size(), from.size(), System.currentTimeMillis() - started);
+    }
+
+    public void addEdge(String followerId, String followeeId) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(new EdgeChange(followerId, followeeId, true));
+            }
+            applyAdd(followerId, followeeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeEdge(String followerId, String followeeId) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(new EdgeChange(followerId, followeeId, false));
+            }
+            applyRemove(followerId, followeeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers hold the write lock
+    private void applyAdd(String followerId, String followeeId) {
+        int from = intern(indexes, ids, followerId);
+        int to = intern(indexes, ids, followeeId);
+        if (following.add(from, to)) {
+            followers.add(to, from);
+            recordChange();
+        }
+    }
+
+    private void applyRemove(String followerId, String followeeId) {
+        Integer from = indexes.get(followerId);
+        Integer to = indexes.get(followeeId);
+        if (from == null || to == null) {
+            return;
+        }
+        if (following.remove(from, to)) {
+            followers.remove(to, from);
+            recordChange();
+        }
+    }
+
+    /**
+     * Runs the reader with the graph frozen. Readers may fan work out to
+     * other threads as long as it completes before returning.
+     */
+    public <T> T read(Reader<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.read(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The accessors below must only be used inside read()
+
+    public int indexOf(String userId) {
+        Integer index = indexes.get(userId);
+        return index == null ? -1 : index;
+    }
+
+    public String idOf(int index) {
+        return ids.get(index);
+    }
+
+    /**
+     * Followees of the node in ascending order.
+     */
+    public int[] following(int node) {
+        return following.row(node);
+    }
+
+    /**
+     * Followers of the node in ascending order.
+     */
+    public int[] followers(int node) {
+        return followers.row(node);
+    }
+
+    public void forEachFollowing(int node, IntConsumer consumer) {
+        following.forEach(node, consumer);
+    }
+
+    private static int intern(Map<String, Integer> indexes, List<String> ids, String userId) {
+        return indexes.computeIfAbsent(userId, key -> {
+            ids.add(key);
+            return ids.size() - 1;
+        });
+    }
+
+    private void recordChange() {
+        if (++pendingChanges >= compactionThreshold) {
+            following.compact(ids.size());
+            followers.compact(ids.size());
+            pendingChanges = 0;
+            log.debug("Follow graph compacted: {} users", ids.size());
+        }
+    }
+
+    private record EdgeChange(String followerId, String followeeId, boolean added) {
+    }
+
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(FollowGraph graph);
+    }
+
+    /**
+     * One direction of the graph: CSR base rows plus the edges added or
+     * removed since they were built. Guarded by the enclosing graph's lock.
+     */
+    private static final class Adjacency {
+        // Row i is targets[offsets[i] .. offsets[i + 1])
+        private int[] offsets = {0};
+        private int[] targets = NO_NEIGHBORS;
+        private final Map<Integer, Set<Integer>> added = new HashMap<>();
+        private final Map<Integer, Set<Integer>> removed = new HashMap<>();
+
+        boolean add(int from, int to) {
+            Set<Integer> removedFrom = removed.get(from);
+            if (removedFrom != null && removedFrom.remove(to)) {
+                return true;
+            }
+            if (inBase(from, to)) {
+                return false;
+            }
+            return added.computeIfAbsent(from, key -> new HashSet<>()).add(to);
+        }
+
+        boolean remove(int from, int to) {
+            Set<Integer> addedFrom = added.get(from);
+            if (addedFrom != null && addedFrom.remove(to)) {
+                return true;
+            }
+            if (!inBase(from, to)) {
+                return false;
+            }
+            return removed.computeIfAbsent(from, key -> new HashSet<>()).add(to);
+        }
+
+        int[] row(int node) {
+            IntList row = new IntList();
+            forEach(node, row::add);
+            int[] result = row.toArray();
+            Set<Integer> addedFrom = added.get(node);
+            if (addedFrom != null && !addedFrom.isEmpty()) {
+                Arrays.sort(result);
+            }
+            return result;
+        }
+
+        void forEach(int node, IntConsumer consumer) {
+            Set<Integer> removedFrom = removed.get(node);
+            if (node < offsets.length - 1) {
+                for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                    if (removedFrom == null || !removedFrom.contains(targets[i])) {
+                        consumer.accept(targets[i]);
+                    }
+                }
+            }
+            Set<Integer> addedFrom = added.get(node);
+            if (addedFrom != null) {
+                addedFrom.forEach(consumer::accept);
+            }
+        }
+
+        void compact(int nodes) {
+            IntList from = new IntList();
+            IntList to = new IntList();
+            for (int node = 0; node < nodes; node++) {
+                int source = node;
+                forEach(node, target -> {
+                    from.add(source);
+                    to.add(target);
+                });
+            }
+            build(nodes, from, to);
+        }
+
+        // Counting sort of the edge list into sorted rows
+        void build(int nodes, IntList from, IntList to) {
+            int[] newOffsets = new int[nodes + 1];
+            for (int i = 0; i < from.size(); i++) {
+                newOffsets[from.get(i) + 1]++;
+            }
+            for (int node = 0; node < nodes; node++) {
+                newOffsets[node + 1] += newOffsets[node];
+            }
+
+            int[] newTargets = new int[from.size()];
+            int[] cursor = Arrays.copyOf(newOffsets, nodes);
+            for (int i = 0; i < from.size(); i++) {
+                newTargets[cursor[from.get(i)]++] = to.get(i);
+            }
+            for (int node = 0; node < nodes; node++) {
+                Arrays.sort(newTargets, newOffsets[node], newOffsets[node + 1]);
+            }
+
+            offsets = newOffsets;
+            targets = newTargets;
+            added.clear();
+            removed.clear();
+        }
+
+        private boolean inBase(int from, int to) {
+            if (from >= offsets.length - 1) {
+                return false;
+            }
+            return Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to) >= 0;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.skillshare.service;
+
+import com.skillshare.model.Follow;
+import com.skillshare.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Copies the legacy embedded following_ids/follower_ids arrays into the
+ * follows collection and recomputes the per-user counters from the edges.
+ * Safe to run repeatedly: edges are upserted on their unique key. The
+ * counters are also recomputed on a schedule, which repairs any that a
+ * follow or unfollow left behind when it failed between its edge write
+ * and its counter updates.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FollowMigrationService implements ApplicationRunner {
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${follows.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    // Unset the embedded arrays once their edges are written
+    @Value("${follows.drop-embedded-arrays:false}")
+    private boolean dropEmbeddedArrays;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (migrateOnStartup) {
+            migrateEmbeddedFollows();
+        }
+    }
+
+    public long migrateEmbeddedFollows() {
+        log.info("Migrating embedded follow lists into the follows collection");
+        Query usersWithFollows = Query.query(new Criteria().orOperator(
+            Criteria.where("following_ids.0").exists(true),
+            Criteria.where("follower_ids.0").exists(true)
+        ));
+        usersWithFollows.fields().include("following_ids", "follower_ids");
+
+        long edges = 0;
+        try (Stream<User> users = mongoTemplate.stream(usersWithFollows, User.class)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                edges += upsertEdges(user);
+            }
+        }
+
+        long users = recomputeCounters();
+        log.info("Follow migration finished: {} edges written, {} users recounted", edges, users);
+        return edges;
+    }
+
+    private long upsertEdges(User user) {
+        Set<List<String>> pairs = new LinkedHashSet<>();
+        if (user.getFollowingIds() != null) {
+            user.getFollowingIds().forEach(followeeId -> pairs.add(List.of(user.getId(), followeeId)));
+        }
+        if (user.getFollowerIds() != null) {
+            user.getFollowerIds().forEach(followerId -> pairs.add(List.of(followerId, user.getId())));
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Follow.class);
+        Instant now = Instant.now();
+        long written = 0;
+        for (List<String> pair : pairs) {
+            if (pair.get(0).equals(pair.get(1))) {
+                continue;
+            }
+            bulk.upsert(
+                Query.query(Criteria.where("follower_id").is(pair.get(0)).and("followee_id").is(pair.get(1))),
+                new Update().setOnInsert("created_at", now)
+            );
+            written++;
+        }
+        if (written > 0) {
+            bulk.execute();
+        }
+
+        if (dropEmbeddedArrays) {
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(user.getId())),
+                new Update().unset("following_ids").unset("follower_ids"),
+                User.class
+            );
+        }
+        return written;
+    }
+
+    /**
+     * Sets each user's counters to the number of edges in the follows
+     * collection, writing only those that differ. Returns the number of
+     * users corrected.
+     */
+    @Scheduled(cron = "${follows.recount-cron:0 30 3 * * *}")
+    public long recomputeCounters() {
+        Query allUsers = new Query();
+        allUsers.fields().include("_id", "following_count", "followers_count");
+
+        long recounted = 0;
+        try (Stream<User> users = mongoTemplate.stream(allUsers, User.class)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                long following = mongoTemplate.count(Query.query(Criteria.where("follower_id").is(user.getId())), Follow.class);
+                long followers = mongoTemplate.count(Query.query(Criteria.where("followee_id").is(user.getId())), Follow.class);
+                if (following == user.getFollowingCount() && followers == user.getFollowersCount()) {
+                    continue;
+                }
+                mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(user.getId())),
+                    new Update().set("following_count", following).set("followers_count", followers),
+                    User.class
+                );
+                recounted++;
+            }
+        }
+        if (recounted > 0) {
+            log.info("Follow counters corrected for {} users", recounted);
+        }
+        return recounted;
+    }
+}
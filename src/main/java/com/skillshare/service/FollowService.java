@@ -0,0 +1,222 @@
+package com.skillshare.service;
+
+import com.skillshare.model.CursorPage;
+import com.skillshare.model.Follow;
+import com.skillshare.model.User;
+import com.skillshare.model.UserSummary;
+import com.skillshare.repository.FollowRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FollowService {
+    private final FollowRepository followRepository;
+    private final MongoTemplate mongoTemplate;
+    private final UserDirectoryService userDirectoryService;
+    private final SuggestionService suggestionService;
+    private final FollowGraph followGraph;
+
+    // Opt-in for old clients that still read the legacy following_ids/follower_ids arrays
+    @Value("${follows.mirror-embedded-ids:false}")
+    private boolean mirrorEmbeddedIds;
+
+    @Value("${follows.page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${follows.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${follows.max-relationship-batch:500}")
+    private int maxRelationshipBatch;
+
+    /**
+     * Records the follow edge and bumps both users' counters in place.
+     * The unique edge insert is what makes a repeated follow a no-op, so
+     * concurrent requests can never double-count. Counters left behind by
+     * a failure after the edge write are corrected by
+     * {@link FollowMigrationService#recomputeCounters}.
+     */
+    public FollowCounts follow(String followerId, String followeeId) {
+        try {
+            followRepository.insert(Follow.builder()
+                .followerId(followerId)
+                .followeeId(followeeId)
+                .createdAt(Instant.now())
+                .build());
+        } catch (DuplicateKeyException e) {
+            return getCounts(followeeId);
+        }
+        suggestionService.recordFollow(followerId, followeeId);
+
+        Update followerUpdate = new Update().inc("following_count", 1);
+        Update followeeUpdate = new Update().inc("followers_count", 1);
+        if (mirrorEmbeddedIds) {
+            followerUpdate.addToSet("following_ids", followeeId);
+            followeeUpdate.addToSet("follower_ids", followerId);
+        }
+        mongoTemplate.updateFirst(byId(followerId), followerUpdate, User.class);
+        return modifyCounts(followeeId, followeeUpdate);
+    }
+
+    /**
+     * Removes the follow edge and decrements both users' counters in place.
+     */
+    public FollowCounts unfollow(String followerId, String followeeId) {
+        if (followRepository.deleteByFollowerIdAndFolloweeId(followerId, followeeId) == 0) {
+            return getCounts(followeeId);
+        }
+        suggestionService.recordUnfollow(followerId, followeeId);
+
+        Update followerUpdate = new Update().inc("following_count", -1);
+        Update followeeUpdate = new Update().inc("followers_count", -1);
+        if (mirrorEmbeddedIds) {
+            followerUpdate.pull("following_ids", followeeId);
+            followeeUpdate.pull("follower_ids", followerId);
+        }
+        mongoTemplate.updateFirst(byId(followerId), followerUpdate, User.class);
+        return modifyCounts(followeeId, followeeUpdate);
+    }
+
+    public FollowCounts getCounts(String userId) {
+        User user = mongoTemplate.findOne(countsOnly(byId(userId)), User.class);
+        return user == null ? null : new FollowCounts(user.getFollowersCount(), user.getFollowingCount());
+    }
+
+    public boolean isFollowing(String followerId, String followeeId) {
+        return followRepository.existsByFollowerIdAndFolloweeId(followerId, followeeId);
+    }
+
+    /**
+     * Follow state between the user and each of the others, computed by
+     * merging the user's sorted following and follower rows from the
+     * in-memory graph against the sorted batch.
+     */
+    public List<Relationship> getRelationships(String userId, List<String> otherIds) {
+        if (otherIds.size() > maxRelationshipBatch) {
+            throw new IllegalArgumentException("At most " + maxRelationshipBatch + " users per request");
+        }
+
+        return followGraph.read(graph -> {
+            int user = graph.indexOf(userId);
+            int[] following = user < 0 ? new int[0] : graph.following(user);
+            int[] followers = user < 0 ? new int[0] : graph.followers(user);
+
+            // (node, position) pairs sorted by node; users unknown to the graph sort first and match nothing
+            long[] batch = new long[otherIds.size()];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = ((long) graph.indexOf(otherIds.get(i)) << 32) | i;
+            }
+            Arrays.sort(batch);
+
+            boolean[] isFollowing = new boolean[batch.length];
+            boolean[] isFollowedBy = new boolean[batch.length];
+            int f = 0;
+            int r = 0;
+            for (long entry : batch) {
+                int node = (int) (entry >> 32);
+                int position = (int) entry;
+                if (node < 0) {
+                    continue;
+                }
+                while (f < following.length && following[f] < node) {
+                    f++;
+                }
+                while (r < followers.length && followers[r] < node) {
+                    r++;
+                }
+                isFollowing[position] = f < following.length && following[f] == node;
+                isFollowedBy[position] = r < followers.length && followers[r] == node;
+            }
+
+            List<Relationship> relationships = new ArrayList<>(batch.length);
+            for (int i = 0; i < batch.length; i++) {
+                relationships.add(new Relationship(
+                    otherIds.get(i), isFollowing[i], isFollowedBy[i], isFollowing[i] && isFollowedBy[i]
+                ));
+            }
+            return relationships;
+        });
+    }
+
+    public CursorPage<UserSummary> getFollowers(String userId, String cursor, Integer limit) {
+        return pageEdges("followee_id", userId, Follow::getFollowerId, cursor, limit);
+    }
+
+    public CursorPage<UserSummary> getFollowing(String userId, String cursor, Integer limit) {
+        return pageEdges("follower_id", userId, Follow::getFolloweeId, cursor, limit);
+    }
+
+    private CursorPage<UserSummary> pageEdges(
+        String userField,
+        String userId,
+        Function<Follow, String> otherSide,
+        String cursor,
+        Integer limit
+    ) {
+        int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+
+        Query query = Query.query(Criteria.where(userField).is(userId));
+        if (cursor != null && !cursor.isBlank()) {
+            query.addCriteria(CursorCodec.olderThan("created_at", cursor));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "created_at").and(Sort.by(Sort.Direction.DESC, "_id")))
+            .limit(pageSize + 1);
+        List<Follow> edges = mongoTemplate.find(query, Follow.class);
+
+        String nextCursor = null;
+        if (edges.size() > pageSize) {
+            edges = edges.subList(0, pageSize);
+            Follow last = edges.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        List<String> ids = edges.stream().map(otherSide).toList();
+
+        return CursorPage.<UserSummary>builder()
+            .items(userDirectoryService.findSummaries(ids))
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    private FollowCounts modifyCounts(String userId, Update update) {
+        User user = mongoTemplate.findAndModify(
+            countsOnly(byId(userId)),
+            update,
+            FindAndModifyOptions.options().returnNew(true),
+            User.class
+        );
+        return user == null ? null : new FollowCounts(user.getFollowersCount(), user.getFollowingCount());
+    }
+
+    private Query countsOnly(Query query) {
+        query.fields().include("followers_count", "following_count");
+        return query;
+    }
+
+    private Query byId(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
+    }
+
+    public record FollowCounts(long followersCount, long followingCount) {
+    }
+
+    public record Relationship(String userId, boolean following, boolean followedBy, boolean mutual) {
+    }
+}
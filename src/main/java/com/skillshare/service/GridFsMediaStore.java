@@ -0,0 +1,147 @@
+package com.skillshare.service;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Content as GridFS chunks, read and written directly in the chunks
+ * collection so the store does not depend on the file document.
+ */
+@Component
+@RequiredArgsConstructor
+public class GridFsMediaStore implements MediaStore {
+    public static final String NAME = "gridfs";
+    // The GridFS default, also used for files stored before this class existed
+    public static final int CHUNK_SIZE = 255 * 1024;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${spring.data.mongodb.gridfs.bucket:fs}")
+    private String bucket;
+
+    @PostConstruct
+    void ensureIndexes() {
+        // Left unnamed so it matches the files_id_1_n_1 index the GridFS driver creates
+        mongoTemplate.indexOps(chunksCollection()).ensureIndex(new Index()
+            .on("files_id", Sort.Direction.ASC)
+            .on("n", Sort.Direction.ASC)
+            .unique());
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public long put(ObjectId id, InputStream content) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        long length = 0;
+        int n = 0;
+        try {
+            int read;
+            while ((read = content.readNBytes(buffer, 0, CHUNK_SIZE)) > 0) {
+                // The insert encodes the chunk before returning, so the buffer can be reused
+                byte[] data = read == CHUNK_SIZE ? buffer : Arrays.copyOf(buffer, read);
+                mongoTemplate.insert(new Document("files_id", id).append("n", n++).append("data", new Binary(data)),
+                    chunksCollection());
+                length += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(id);
+            throw e;
+        }
+        return length;
+    }
+
+    @Override
+    public InputStream open(ObjectId id) {
+        Query query = Query.query(Criteria.where("files_id").is(id)).with(Sort.by("n"));
+        query.fields().include("data");
+        Stream<Document> chunks = mongoTemplate.stream(query, Document.class, chunksCollection());
+        Iterator<Document> iterator = chunks.iterator();
+
+        // One chunk is held in memory at a time
+        Enumeration<InputStream> pieces = new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return new ByteArrayInputStream(iterator.next().get("data", Binary.class).getData());
+            }
+        };
+        return new SequenceInputStream(pieces) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    chunks.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void writeRange(ObjectId id, long start, long end, OutputStream out) throws IOException {
+        long chunkSize = chunkSize(id);
+        Query query = Query.query(Criteria.where("files_id").is(id)
+                .and("n").gte((int) (start / chunkSize)).lte((int) (end / chunkSize)))
+            .with(Sort.by("n"));
+        query.fields().include("n", "data");
+
+        try (Stream<Document> chunks = mongoTemplate.stream(query, Document.class, chunksCollection())) {
+            Iterator<Document> iterator = chunks.iterator();
+            while (iterator.hasNext()) {
+                Document chunk = iterator.next();
+                byte[] data = chunk.get("data", Binary.class).getData();
+                long chunkStart = chunk.getInteger("n") * chunkSize;
+                int from = (int) Math.max(0, start - chunkStart);
+                int to = (int) Math.min(data.length, end - chunkStart + 1);
+                if (to > from) {
+                    out.write(data, from, to - from);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void delete(ObjectId id) {
+        mongoTemplate.remove(Query.query(Criteria.where("files_id").is(id)), chunksCollection());
+    }
+
+    // Chunk numbers only map to offsets with the size the file was written with
+    private long chunkSize(ObjectId id) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include("chunkSize");
+        Document file = mongoTemplate.findOne(query, Document.class, bucket + ".files");
+        return file != null && file.get("chunkSize") instanceof Number size ? size.longValue() : CHUNK_SIZE;
+    }
+
+    private String chunksCollection() {
+        return bucket + ".chunks";
+    }
+}
@@ -0,0 +1,124 @@
+package com.skillshare.service;
+
+import com.skillshare.model.LearningPlan;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Plan counts per skill and per skill level for the catalog filters.
+ * Loaded with a $group aggregation, then adjusted as plans are created,
+ * edited and deleted. A periodic reload corrects any drift. Readers get an
+ * immutable sorted snapshot that is replaced on every change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LearningPlanFacetService {
+    private final MongoTemplate mongoTemplate;
+
+    private volatile Facets facets = new Facets(Map.of(), Map.of());
+    // Serializes snapshot replacements
+    private final Object lock = new Object();
+    // Changes recorded while a reload is aggregating, replayed onto its result; null otherwise
+    private List<Change> pending;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${learning-plans.facets-refresh-cron:0 0 * * * *}")
+    public synchronized void reload() {
+        synchronized (lock) {
+            pending = new ArrayList<>();
+        }
+        Map<String, Long> skills;
+        Map<String, Long> skillLevels;
+        try {
+            skills = countBy("skill");
+            skillLevels = countBy("skill_level");
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                pending = null;
+            }
+            throw e;
+        }
+
+        synchronized (lock) {
+            for (Change change : pending) {
+                adjust(skills, change.skill(), change.delta());
+                adjust(skillLevels, change.skillLevel(), change.delta());
+            }
+            pending = null;
+            facets = new Facets(Collections.unmodifiableMap(skills), Collections.unmodifiableMap(skillLevels));
+        }
+        log.debug("Learning plan facets loaded: {} skills, {} levels", skills.size(), skillLevels.size());
+    }
+
+    public Facets getFacets() {
+        return facets;
+    }
+
+    public void recordCreated(LearningPlan plan) {
+        record(plan, 1);
+    }
+
+    public void recordUpdated(LearningPlan before, LearningPlan after) {
+        recordDeleted(before);
+        recordCreated(after);
+    }
+
+    public void recordDeleted(LearningPlan plan) {
+        record(plan, -1);
+    }
+
+    private void record(LearningPlan plan, long delta) {
+        synchronized (lock) {
+            Facets current = facets;
+            Map<String, Long> skills = new TreeMap<>(current.skills());
+            Map<String, Long> skillLevels = new TreeMap<>(current.skillLevels());
+            adjust(skills, plan.getSkill(), delta);
+            adjust(skillLevels, plan.getSkillLevel(), delta);
+            facets = new Facets(Collections.unmodifiableMap(skills), Collections.unmodifiableMap(skillLevels));
+            if (pending != null) {
+                pending.add(new Change(plan.getSkill(), plan.getSkillLevel(), delta));
+            }
+        }
+    }
+
+    private Map<String, Long> countBy(String field) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.group(field).count().as("count")
+        );
+        Map<String, Long> counts = new TreeMap<>();
+        mongoTemplate.aggregate(aggregation, LearningPlan.class, Document.class)
+            .forEach(result -> {
+                Object value = result.get("_id");
+                if (value != null) {
+                    counts.put(value.toString(), ((Number) result.get("count")).longValue());
+                }
+            });
+        return counts;
+    }
+
+    private void adjust(Map<String, Long> counts, String value, long delta) {
+        if (value != null) {
+            counts.merge(value, delta, (current, change) -> current + change <= 0 ? null : current + change);
+        }
+    }
+
+    private record Change(String skill, String skillLevel, long delta) {
+    }
+
+    public record Facets(Map<String, Long> skills, Map<String, Long> skillLevels) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.skillshare.service;
+
+import com.skillshare.model.LearningPlanSummary;
+import com.skillshare.model.LearningProgress;
+import com.skillshare.model.Lesson;
+import com.skillshare.repository.LearningPlanRepository;
+import com.skillshare.repository.LearningProgressRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class LearningProgressService {
+    private final MongoTemplate mongoTemplate;
+    private final LearningProgressRepository learningProgressRepository;
+    private final LearningPlanRepository learningPlanRepository;
+
+    /**
+     * Enrolls the user in the plan if needed and sets or clears the
+     * lesson's bit with a single atomic $bit upsert. Returns false when the
+     * plan has no lesson at that index.
+     */
+    public boolean setLessonCompleted(String userId, String planId, int lessonIndex, boolean completed) {
+        if (!learningPlanRepository.hasLesson(planId, lessonIndex)) {
+            return false;
+        }
+
+        String word = "completed_words." + (lessonIndex / Long.SIZE);
+        long mask = 1L << (lessonIndex % Long.SIZE);
+        Update update = new Update()
+            .setOnInsert("created_at", Instant.now())
+            .set("updated_at", Instant.now());
+        if (completed) {
+            update.bitwise(word).or(mask);
+        } else {
+            update.bitwise(word).and(~mask);
+        }
+
+        mongoTemplate.upsert(byUserAndPlan(userId, planId), update, LearningProgress.class);
+        return true;
+    }
+
+    public void enroll(String userId, String planId) {
+        Update update = new Update()
+            .setOnInsert("created_at", Instant.now())
+            .set("updated_at", Instant.now());
+        mongoTemplate.upsert(byUserAndPlan(userId, planId), update, LearningProgress.class);
+    }
+
+    public void unenroll(String userId, String planId) {
+        learningProgressRepository.deleteByUserIdAndPlanId(userId, planId);
+    }
+
+    /**
+     * Clears the completion bits of lessons whose position changed in a plan
+     * edit, since bits are keyed by lesson index. With the same number of
+     * lessons only the replaced or reordered positions are cleared; when
+     * lessons were inserted or removed, everything from the first change on
+     * is cleared, as those lessons have shifted.
+     */
+    public void resetChangedLessons(String planId, List<Lesson> before, List<Lesson> after) {
+        List<Lesson> oldLessons = before == null ? List.of() : before;
+        List<Lesson> newLessons = after == null ? List.of() : after;
+        int common = Math.min(oldLessons.size(), newLessons.size());
+        int end = Math.max(oldLessons.size(), newLessons.size());
+        boolean shifted = oldLessons.size() != newLessons.size();
+
+        // Bits to clear per word
+        Map<Integer, Long> cleared = new TreeMap<>();
+        for (int i = 0; i < end; i++) {
+            boolean changed = i >= common || !Objects.equals(oldLessons.get(i), newLessons.get(i));
+            if (!changed) {
+                continue;
+            }
+            if (shifted) {
+                // Every later lesson moved as well
+                for (int lesson = i; lesson < end; lesson++) {
+                    cleared.merge(lesson / Long.SIZE, 1L << (lesson % Long.SIZE), (a, b) -> a | b);
+                }
+                break;
+            }
+            cleared.merge(i / Long.SIZE, 1L << (i % Long.SIZE), (a, b) -> a | b);
+        }
+        if (cleared.isEmpty()) {
+            return;
+        }
+
+        Update update = new Update().set("updated_at", Instant.now());
+        cleared.forEach((word, mask) -> {
+            if (mask == -1L) {
+                update.unset("completed_words." + word);
+            } else {
+                update.bitwise("completed_words." + word).and(~mask);
+            }
+        });
+        mongoTemplate.updateMulti(
+            Query.query(Criteria.where("plan_id").is(planId)), update, LearningProgress.class);
+    }
+
+    public void deletePlanProgress(String planId) {
+        learningProgressRepository.deleteByPlanId(planId);
+    }
+
+    /**
+     * Progress across every plan the user is enrolled in: one query for the
+     * progress records and one aggregation for the plans' lesson counts.
+     */
+    public List<PlanProgress> getProgress(String userId) {
+        List<LearningProgress> records = learningProgressRepository.findByUserId(userId);
+        Map<String, LearningPlanSummary> plans = learningPlanRepository
+            .findSummariesByIds(records.stream().map(LearningProgress::getPlanId).toList())
+            .stream()
+            .collect(Collectors.toMap(LearningPlanSummary::getId, Function.identity()));
+
+        List<PlanProgress> progress = new ArrayList<>(records.size());
+        for (LearningProgress record : records) {
+            LearningPlanSummary plan = plans.get(record.getPlanId());
+            if (plan != null) {
+                progress.add(toPlanProgress(record, plan.getLessonCount()));
+            }
+        }
+        return progress;
+    }
+
+    private PlanProgress toPlanProgress(LearningProgress record, int lessonCount) {
+        List<Integer> completedLessons = new ArrayList<>();
+        if (record.getCompletedWords() != null) {
+            record.getCompletedWords().forEach((word, bits) -> {
+                int base = Integer.parseInt(word) * Long.SIZE;
+                long remaining = bits;
+                while (remaining != 0) {
+                    int lesson = base + Long.numberOfTrailingZeros(remaining);
+                    // Bits past the end belong to lessons since removed from the plan
+                    if (lesson < lessonCount) {
+                        completedLessons.add(lesson);
+                    }
+                    remaining &= remaining - 1;
+                }
+            });
+        }
+        completedLessons.sort(null);
+
+        double percent = lessonCount == 0 ? 0.0 : 100.0 * completedLessons.size() / lessonCount;
+        return new PlanProgress(record.getPlanId(), completedLessons, lessonCount, percent);
+    }
+
+    private Query byUserAndPlan(String userId, String planId) {
+        return Query.query(Criteria.where("user_id").is(userId).and("plan_id").is(planId));
+    }
+
+    public record PlanProgress(String planId, List<Integer> completedLessons, int lessonCount, double percentComplete) {
+    }
+}
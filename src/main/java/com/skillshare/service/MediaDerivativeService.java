@@ -0,0 +1,340 @@
+package com.skillshare.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resized copies of uploaded images, generated in the background after
+ * upload. Each variant is stored as its own media file whose metadata
+ * points back at the original, and is scaled so its longer side is the
+ * configured size. Once the job for an original has finished, whether or
+ * not it produced anything, the original records the sizes it covered.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaDerivativeService {
+    private static final String DERIVATIVE_OF = "metadata.derivativeOf";
+    private static final String VARIANT = "metadata.variant";
+    private static final String DERIVATIVE_SIZES = "metadata.derivativeSizes";
+
+    private final GridFsTemplate gridFsTemplate;
+    private final MediaStorage mediaStorage;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${spring.data.mongodb.gridfs.bucket:fs}")
+    private String bucket;
+
+    // Longer side of each variant in pixels
+    @Value("${media.derivatives.sizes:64,256,1024}")
+    private List<Integer> sizes;
+
+    // Larger images are not decoded at all: a few KB can declare a frame that fills the heap
+    @Value("${media.derivatives.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${media.derivatives.workers:2}")
+    private int workers;
+
+    @Value("${media.derivatives.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${media.derivatives.cache-size:10000}")
+    private int cacheSize;
+
+    private ThreadPoolExecutor executor;
+    private Map<String, Resolution> resolved;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        mongoTemplate.indexOps(bucket + ".files").ensureIndex(new Index()
+            .on(DERIVATIVE_OF, Sort.Direction.ASC)
+            .on(VARIANT, Sort.Direction.ASC)
+            .named("derivative_variant_idx")
+            .sparse());
+
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+            workers, workers, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            task -> {
+                Thread thread = new Thread(task, "media-derivatives-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        resolved = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Resolution> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    // Only images get variants; anything else is served as uploaded
+    public boolean accepts(String mediaType) {
+        return "image".equals(mediaType);
+    }
+
+    public void schedule(ObjectId originalId) {
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(originalId);
+                    completed.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.error("Failed to generate derivatives for media {}", originalId, e);
+                } finally {
+                    settle(originalId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // A full queue drops the job rather than slowing the upload down
+            rejected.incrementAndGet();
+            log.warn("Derivative queue full, skipping resize job for media {}", originalId);
+            settle(originalId);
+        }
+    }
+
+    /**
+     * The smallest variant at least as large as the requested size, or a
+     * null variant id when the original should be served. The result is
+     * settled once no better variant can appear, and only settled results
+     * are cached.
+     */
+    public Resolution resolve(String originalId, int size) {
+        String key = originalId + ":" + size;
+        synchronized (this) {
+            Resolution cached = resolved.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Query query = Query.query(Criteria.where(DERIVATIVE_OF).is(originalId).and(VARIANT).gte(size))
+            .with(Sort.by(VARIANT))
+            .limit(1);
+        query.fields().include("_id");
+        Document variant = mongoTemplate.findOne(query, Document.class, bucket + ".files");
+
+        Resolution resolution;
+        if (variant != null) {
+            resolution = new Resolution(variant.getObjectId("_id").toString(), true);
+        } else if (ObjectId.isValid(originalId)) {
+            Query originalQuery = Query.query(Criteria.where("_id").is(new ObjectId(originalId)));
+            originalQuery.fields().include("metadata.type", "metadata.contentId", DERIVATIVE_SIZES);
+            Document original = mongoTemplate.findOne(originalQuery, Document.class, bucket + ".files");
+            if (original == null) {
+                return new Resolution(null, false);
+            }
+            Document metadata = original.get("metadata", Document.class);
+            ObjectId contentId = metadata == null ? null : metadata.getObjectId("contentId");
+            if (contentId != null) {
+                // A deduplicated upload uses the variants of the file holding its content
+                resolution = resolve(contentId.toString(), size);
+            } else {
+                boolean settled = metadata == null
+                    || !accepts(metadata.getString("type"))
+                    || metadata.containsKey("derivativeSizes");
+                resolution = new Resolution(null, settled);
+            }
+        } else {
+            return new Resolution(null, false);
+        }
+
+        if (resolution.settled()) {
+            synchronized (this) {
+                resolved.put(key, resolution);
+            }
+        }
+        return resolution;
+    }
+
+    /**
+     * Removes the variants of an original whose content is being deleted,
+     * together with any cached lookups that lead to them.
+     */
+    public void deleteVariants(ObjectId originalId) throws IOException {
+        Query query = Query.query(Criteria.where(DERIVATIVE_OF).is(originalId.toString()));
+        query.fields().include("_id");
+        List<String> variantIds = new ArrayList<>();
+        for (Document variant : mongoTemplate.find(query, Document.class, bucket + ".files")) {
+            mediaStorage.delete(variant.getObjectId("_id"));
+            variantIds.add(variant.getObjectId("_id").toString());
+        }
+
+        String prefix = originalId + ":";
+        synchronized (this) {
+            resolved.entrySet().removeIf(entry -> entry.getKey().startsWith(prefix)
+                || variantIds.contains(entry.getValue().variantId()));
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(
+            executor.getQueue().size(),
+            queueCapacity,
+            executor.getActiveCount(),
+            completed.get(),
+            failed.get(),
+            rejected.get()
+        );
+    }
+
+    private void generate(ObjectId originalId) throws IOException {
+        GridFSFile original = gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(originalId)));
+        if (original == null) {
+            return;
+        }
+
+        BufferedImage image;
+        try (InputStream in = mediaStorage.open(original);
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = imageIn == null ? null : ImageIO.getImageReaders(imageIn);
+            if (readers == null || !readers.hasNext()) {
+                log.warn("No image reader for media {}", originalId);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                // Dimensions come from the header, before any pixel data is decoded
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Media {} is {} pixels, over the {} pixel limit for resizing", originalId, pixels, maxPixels);
+                    return;
+                }
+                image = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        // JPEGs stay JPEG; PNGs and GIFs (first frame only) become PNG to keep transparency
+        String contentType = original.getMetadata() == null ? null : original.getMetadata().getString("contentType");
+        boolean jpeg = "image/jpeg".equals(contentType);
+        String format = jpeg ? "jpg" : "png";
+        String variantType = jpeg ? "image/jpeg" : "image/png";
+
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        for (int size : sizes) {
+            // Larger sizes are served by the original itself
+            if (size >= longest || variantExists(originalId, size)) {
+                continue;
+            }
+
+            double scale = (double) size / longest;
+            int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+            BufferedImage resized = new BufferedImage(
+                width, height, jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB
+            );
+            Graphics2D graphics = resized.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(image, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ImageIO.write(resized, format, bytes);
+            byte[] data = bytes.toByteArray();
+
+            Document metadata = new Document()
+                .append("contentType", variantType)
+                .append("type", "image")
+                .append("originalFilename", original.getFilename())
+                .append("createdAt", Instant.now().toString())
+                .append("contentHash", sha256(data))
+                .append("derivativeOf", originalId.toString())
+                .append("variant", size);
+            mediaStorage.store(new ByteArrayInputStream(data), original.getFilename(), metadata);
+        }
+    }
+
+    // Recorded however the job ended, so the original stops being treated as a stand-in
+    private void settle(ObjectId originalId) {
+        try {
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(originalId)),
+                new Update().set(DERIVATIVE_SIZES, sizes),
+                bucket + ".files"
+            );
+        } catch (RuntimeException e) {
+            log.warn("Failed to record derivatives of media {}", originalId, e);
+        }
+    }
+
+    private boolean variantExists(ObjectId originalId, int size) {
+        return mongoTemplate.exists(
+            Query.query(Criteria.where(DERIVATIVE_OF).is(originalId.toString()).and(VARIANT).is(size)),
+            bucket + ".files"
+        );
+    }
+
+    private String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record Resolution(String variantId, boolean settled) {
+    }
+
+    public record Stats(int queued, int queueCapacity, int active, long completed, long failed, long rejected) {
+    }
+}
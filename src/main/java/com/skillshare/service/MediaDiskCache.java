@@ -0,0 +1,314 @@
+package com.skillshare.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Copies of recently served media files on local disk, bounded by total
+ * size with least-recently-used eviction. A file is written on its first
+ * download and later downloads are sent from disk instead of being read
+ * from GridFS: by the container with sendfile where it supports that (see
+ * {@link #lookup}), otherwise copied to the response stream by
+ * {@link #transferTo}. Evicted files are unlinked a little later by a
+ * sweep, outside the lock, so a file handed to the container just before
+ * its eviction is still there when the container opens it.
+ */
+@Slf4j
+@Component
+public class MediaDiskCache {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Value("${media.disk-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.disk-cache.dir:${java.io.tmpdir}/skillshare-media}")
+    private String directoryName;
+
+    @Value("${media.disk-cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    // Evicted files stay on disk this long before the sweep deletes them
+    @Value("${media.disk-cache.delete-grace-ms:30000}")
+    private long deleteGraceMillis;
+
+    // id -> file size, in access order
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    // id -> eviction time of files waiting to be deleted, oldest first
+    private final Map<String, Long> evicted = new LinkedHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private Path directory;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = Path.of(directoryName);
+        Files.createDirectories(directory);
+
+        // Files left by a previous run are kept, oldest first so they are evicted first
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(Files::isRegularFile).forEach(files::add);
+        }
+        files.sort(Comparator.comparing(MediaDiskCache::modifiedTime));
+
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                long size = Files.size(file);
+                entries.put(name, size);
+                usedBytes += size;
+            }
+            evict();
+        }
+        log.info("Media disk cache loaded: {} files, {} bytes in {}", entries.size(), usedBytes, directory);
+    }
+
+    /**
+     * Path of the cached copy of the media item, or null when there is none.
+     * Only hits are counted: a miss here is followed by {@link #transferTo},
+     * which counts it.
+     */
+    public Path lookup(String id) {
+        if (directory == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (entries.get(id) == null) {
+                return null;
+            }
+        }
+
+        Path file = directory.resolve(id);
+        if (!Files.isRegularFile(file)) {
+            // Removed from disk behind our back
+            remove(id);
+            return null;
+        }
+        hits.incrementAndGet();
+        return file;
+    }
+
+    /**
+     * Copies bytes start to end (inclusive) of the cached copy of the media
+     * item to the stream. Returns false, without writing anything, when
+     * there is none.
+     */
+    public boolean transferTo(String id, long start, long end, OutputStream out) throws IOException {
+        if (directory == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (entries.get(id) == null) {
+                misses.incrementAndGet();
+                return false;
+            }
+        }
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.resolve(id), StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Removed from disk behind our back
+            remove(id);
+            misses.incrementAndGet();
+            return false;
+        }
+
+        hits.incrementAndGet();
+        try (channel) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end - position + 1, target);
+                if (transferred <= 0) {
+                    throw new IOException("Cached media file is shorter than expected: " + id);
+                }
+                position += transferred;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts writing a copy of the media item. Returns null when caching is
+     * disabled or the item is larger than the whole cache.
+     */
+    public Fill beginFill(String id, long size) throws IOException {
+        if (directory == null || size > maxBytes) {
+            return null;
+        }
+        Path temp = Files.createTempFile(directory, id, TEMP_SUFFIX);
+        return new Fill(id, temp, Files.newOutputStream(temp));
+    }
+
+    public Stats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        synchronized (this) {
+            return new Stats(
+                hitCount,
+                missCount,
+                lookups == 0 ? 0 : (double) hitCount / lookups,
+                entries.size(),
+                usedBytes,
+                maxBytes
+            );
+        }
+    }
+
+    private void commit(Fill fill, long size) throws IOException {
+        // Rename into place so readers never see a partly written file
+        Files.move(fill.temp, directory.resolve(fill.id), StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long previous = entries.put(fill.id, size);
+            usedBytes += size - (previous == null ? 0 : previous);
+            // The file now in place is the new copy, not the evicted one
+            evicted.remove(fill.id);
+            evict();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.disk-cache.sweep-delay-ms:10000}")
+    public void deleteEvicted() {
+        if (directory == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - deleteGraceMillis;
+        List<String> expired = new ArrayList<>();
+        synchronized (this) {
+            var iterator = evicted.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (entry.getValue() > cutoff) {
+                    break;
+                }
+                iterator.remove();
+                expired.add(entry.getKey());
+            }
+        }
+
+        for (String id : expired) {
+            try {
+                // Open channels keep reading the unlinked file until they close
+                Files.deleteIfExists(directory.resolve(id));
+            } catch (IOException e) {
+                log.warn("Failed to delete cached media file {}", id, e);
+            }
+        }
+    }
+
+    // Drops the entry; the file goes with the next sweep
+    public synchronized void evict(String id) {
+        Long size = entries.remove(id);
+        if (size != null) {
+            usedBytes -= size;
+            evicted.put(id, System.currentTimeMillis());
+        }
+    }
+
+    private synchronized void remove(String id) {
+        Long size = entries.remove(id);
+        if (size != null) {
+            usedBytes -= size;
+        }
+    }
+
+    // Caller holds the monitor; the files themselves go in deleteEvicted
+    private void evict() {
+        long now = System.currentTimeMillis();
+        var iterator = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            usedBytes -= eldest.getValue();
+            evicted.remove(eldest.getKey());
+            evicted.put(eldest.getKey(), now);
+        }
+    }
+
+    private static FileTime modifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * A copy being written alongside a GridFS download. Call
+     * {@link #complete} once every byte has been written, or
+     * {@link #abort} if the download failed part way.
+     */
+    public final class Fill {
+        private final String id;
+        private final Path temp;
+        private final OutputStream out;
+        private long written;
+
+        private Fill(String id, Path temp, OutputStream out) {
+            this.id = id;
+            this.temp = temp;
+            this.out = out;
+        }
+
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            written += length;
+        }
+
+        // The download itself has succeeded by now, so failures here only cost the cached copy
+        public void complete() {
+            try {
+                out.close();
+                commit(this, written);
+            } catch (IOException e) {
+                log.warn("Failed to cache media file {}", id, e);
+                abort();
+            }
+        }
+
+        public void abort() {
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("Failed to discard partial cache file {}", temp, e);
+            }
+        }
+    }
+
+    public record Stats(long hits, long misses, double hitRatio, int files, long usedBytes, long maxBytes) {
+    }
+}
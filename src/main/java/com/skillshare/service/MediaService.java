@@ -0,0 +1,481 @@
+package com.skillshare.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.skillshare.model.MediaHash;
+import com.skillshare.model.MediaItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaService {
+    private final GridFsTemplate gridFsTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final MediaStorage mediaStorage;
+    private final MediaDiskCache diskCache;
+    private final MediaSlabCache slabCache;
+    private final MediaDerivativeService derivativeService;
+    
+    @Value("${media.stream-buffer-size:65536}")
+    private int bufferSize;
+    
+    @Value("${spring.data.mongodb.gridfs.bucket:fs}")
+    private String bucket;
+    
+    // Passes through the store-or-reference loop before giving up on a hash that keeps changing hands
+    private static final int MAX_DEDUP_ATTEMPTS = 5;
+    
+    private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB
+    private static final Map<String, String[]> ALLOWED_TYPES = new HashMap<>() {{
+        put("image", new String[]{"image/jpeg", "image/png", "image/gif"});
+        put("video", new String[]{"video/mp4", "video/quicktime"});
+    }};
+    
+    public MediaItem saveMedia(MultipartFile file, String description) throws IOException {
+        validateUpload(file.getSize(), file.getContentType());
+        
+        // The upload is already buffered locally, so hash it before deciding whether to write it at all
+        return storeDeduplicated(
+            hashContent(file::getInputStream),
+            file::getInputStream,
+            file.getOriginalFilename(),
+            file.getContentType(),
+            description,
+            file.getSize()
+        );
+    }
+
+    /**
+     * Stores the upload as a new media file. Content already held by
+     * another file is not stored again: the new file references it and
+     * one more reference is counted, while the filename and description
+     * stay those of this upload. Deleting the last item that uses some
+     * content removes the content (see {@link #deleteMedia}).
+     */
+    MediaItem storeDeduplicated(
+        String contentHash,
+        ContentSource content,
+        String filename,
+        String contentType,
+        String description,
+        long size
+    ) throws IOException {
+        String mediaType = getMediaType(contentType);
+        
+        // Create metadata
+        Document metadata = new Document();
+        metadata.put("contentType", contentType);
+        metadata.put("type", mediaType);
+        if (description != null) {
+            metadata.put("description", description);
+        }
+        metadata.put("originalFilename", filename);
+        metadata.put("createdAt", Instant.now().toString());
+        metadata.put("contentHash", contentHash);
+        
+        // Each pass ends with a file, or with the hash claimed or released by a concurrent upload or delete
+        ObjectId fileId = null;
+        for (int attempt = 0; fileId == null; attempt++) {
+            if (attempt == MAX_DEDUP_ATTEMPTS) {
+                throw new IllegalStateException("Media hash " + contentHash + " kept changing while storing");
+            }
+            ObjectId existing = findByHash(contentHash);
+            if (existing != null) {
+                // References share the variants of the content they point at
+                log.debug("Upload matches existing media content {}", existing);
+                fileId = addReference(contentHash, existing, filename, metadata);
+            } else {
+                fileId = storeContent(contentHash, content, filename, metadata);
+                if (fileId != null && derivativeService.accepts(mediaType)) {
+                    derivativeService.schedule(fileId);
+                }
+            }
+        }
+        
+        // Create and return MediaItem
+        return MediaItem.builder()
+            .id(fileId.toString())
+            .filename(filename)
+            .contentType(contentType)
+            .description(description)
+            .type(mediaType)
+            .size(size)
+            .contentHash(contentHash)
+            .createdAt(metadata.getString("createdAt"))
+            .build();
+    }
+
+    /**
+     * Looks up a media file's metadata without reading its content. The
+     * returned download is written out with {@link #writeContent}.
+     */
+    public MediaDownload openMedia(String id) {
+        MediaDownload cached = slabCache.getDownload(id);
+        if (cached != null) {
+            return cached;
+        }
+        
+        GridFSFile file = gridFsTemplate.findOne(visible(new ObjectId(id)));
+        
+        if (file == null) {
+            throw new RuntimeException("Media not found with id: " + id);
+        }
+        return toDownload(file);
+    }
+
+    /**
+     * Metadata for many media items in one query, in the order of the ids
+     * given. Unknown and malformed ids are skipped.
+     */
+    public List<MediaItem> getMediaInfo(List<String> ids) {
+        Map<String, MediaItem> found = new HashMap<>();
+        List<ObjectId> uncached = new ArrayList<>();
+        for (String id : ids) {
+            MediaDownload cached = slabCache.getDownload(id);
+            if (cached != null) {
+                found.put(id, cached.media());
+            } else if (ObjectId.isValid(id)) {
+                uncached.add(new ObjectId(id));
+            }
+        }
+        
+        if (!uncached.isEmpty()) {
+            gridFsTemplate.find(Query.query(Criteria.where("_id").in(uncached).and("metadata.released").ne(true)))
+                .forEach(file -> found.put(file.getObjectId().toString(), toDownload(file).media()));
+        }
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    private MediaDownload toDownload(GridFSFile file) {
+        // Get metadata
+        Map<String, String> metadata = new HashMap<>();
+        if (file.getMetadata() != null) {
+            file.getMetadata().forEach((key, value) -> metadata.put(key, value.toString()));
+        }
+        
+        MediaItem media = MediaItem.builder()
+            .id(file.getObjectId().toString())
+            .filename(file.getFilename())
+            .contentType(metadata.get("contentType"))
+            .description(metadata.get("description"))
+            .type(metadata.get("type"))
+            .size(file.getLength())
+            .contentHash(metadata.get("contentHash"))
+            .createdAt(metadata.get("createdAt"))
+            .build();
+        return new MediaDownload(media, file);
+    }
+
+    /**
+     * Copies the file's content to the output through a fixed-size buffer,
+     * so memory use does not grow with the file size. The first download
+     * of a file also writes it to the disk cache, which serves the rest.
+     * Small files go to the off-heap slab cache instead.
+     */
+    public void writeContent(MediaDownload download, OutputStream out) throws IOException {
+        String id = download.media().getId();
+        long length = download.media().getSize();
+        if (slabCache.accepts(length)) {
+            writeSmall(download, 0, length - 1, out);
+            return;
+        }
+        if (length == 0 || diskCache.transferTo(id, 0, length - 1, out)) {
+            return;
+        }
+        
+        MediaDiskCache.Fill fill = diskCache.beginFill(id, length);
+        try (InputStream in = mediaStorage.open(download.file())) {
+            byte[] buffer = new byte[bufferSize];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (fill != null) {
+                    fill.write(buffer, 0, read);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (fill != null) {
+                fill.abort();
+            }
+            throw e;
+        }
+        if (fill != null) {
+            fill.complete();
+        }
+    }
+
+    /**
+     * Writes bytes start to end (inclusive) of the file, from the disk cache
+     * if it holds the file or else by reading only the needed part from the
+     * store. A range covering the whole file fills the cache.
+     */
+    public void writeRange(MediaDownload download, long start, long end, OutputStream out) throws IOException {
+        if (slabCache.accepts(download.media().getSize())) {
+            writeSmall(download, start, end, out);
+            return;
+        }
+        if (start == 0 && end == download.media().getSize() - 1) {
+            writeContent(download, out);
+            return;
+        }
+        if (diskCache.transferTo(download.media().getId(), start, end, out)) {
+            return;
+        }
+        
+        mediaStorage.writeRange(download.file(), start, end, out);
+    }
+
+    /**
+     * The disk cache's copy of the file, for the caller to send without
+     * reading it, or null when the file is not on disk or belongs in the
+     * slab cache.
+     */
+    public Path cachedFile(MediaDownload download) {
+        long length = download.media().getSize();
+        if (length == 0 || slabCache.accepts(length)) {
+            return null;
+        }
+        return diskCache.lookup(download.media().getId());
+    }
+
+    // Small enough to read whole on a miss, then served from the slab cache
+    private void writeSmall(MediaDownload download, long start, long end, OutputStream out) throws IOException {
+        if (slabCache.transferTo(download.media().getId(), start, end, out)) {
+            return;
+        }
+        byte[] content;
+        try (InputStream in = mediaStorage.open(download.file())) {
+            content = in.readAllBytes();
+        }
+        slabCache.put(download, content);
+        out.write(content, (int) start, (int) (end - start + 1));
+    }
+
+    // Writes new content to the store and claims its hash; null if another upload claimed it first
+    private ObjectId storeContent(String contentHash, ContentSource content, String filename, Document metadata)
+        throws IOException {
+        // Store the content in the configured store
+        ObjectId fileId;
+        try (InputStream in = content.open()) {
+            fileId = mediaStorage.store(in, filename, new Document(metadata));
+        }
+        
+        Instant now = Instant.now();
+        try {
+            mongoTemplate.insert(MediaHash.builder()
+                .hash(contentHash)
+                .fileId(fileId.toString())
+                .refCount(1)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+            return fileId;
+        } catch (DuplicateKeyException e) {
+            mediaStorage.delete(fileId);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a file referencing the content and only then counts the
+     * reference. Returns null, leaving nothing behind, if the content was
+     * released in the meantime.
+     */
+    private ObjectId addReference(String contentHash, ObjectId contentId, String filename, Document metadata) {
+        ObjectId fileId;
+        try {
+            fileId = mediaStorage.reference(contentId, filename, new Document(metadata));
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        
+        boolean counted = mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(contentHash)
+                .and("file_id").is(contentId.toString())
+                .and("ref_count").gt(0)),
+            new Update().inc("ref_count", 1).set("updated_at", Instant.now()),
+            MediaHash.class
+        ).getModifiedCount() > 0;
+        if (!counted) {
+            // The last other reference went away first; the content is being removed
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(fileId)), bucket + ".files");
+            return null;
+        }
+        return fileId;
+    }
+
+    /**
+     * Deletes a media item. Its content is removed with it unless other
+     * items still reference the same content, in which case only the
+     * item goes and the content stays until the last of them is deleted.
+     */
+    public void deleteMedia(String id) throws IOException {
+        if (id == null || !ObjectId.isValid(id)) {
+            return;
+        }
+        ObjectId fileId = new ObjectId(id);
+        GridFSFile file = gridFsTemplate.findOne(visible(fileId));
+        if (file == null) {
+            return;
+        }
+        Document metadata = file.getMetadata() == null ? new Document() : file.getMetadata();
+        ObjectId contentId = metadata.getObjectId("contentId");
+        String contentHash = metadata.getString("contentHash");
+        
+        slabCache.evict(id);
+        diskCache.evict(id);
+        if (contentId != null) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(fileId)), bucket + ".files");
+        } else {
+            // The file holds the content itself: hide it, since references may still read through it
+            contentId = fileId;
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(fileId)),
+                new Update().set("metadata.released", true),
+                bucket + ".files"
+            );
+        }
+        
+        if (contentHash == null || release(contentHash, contentId)) {
+            derivativeService.deleteVariants(contentId);
+            mediaStorage.delete(contentId);
+            slabCache.evict(contentId.toString());
+            diskCache.evict(contentId.toString());
+        }
+    }
+
+    // Counts one reference less; true when it was the last and the content should be removed
+    private boolean release(String contentHash, ObjectId contentId) {
+        MediaHash mediaHash = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(contentHash).and("file_id").is(contentId.toString())),
+            new Update().inc("ref_count", -1).set("updated_at", Instant.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            MediaHash.class
+        );
+        if (mediaHash == null) {
+            // Content that never got a hash entry, or lost the race for it, has no other references
+            return true;
+        }
+        if (mediaHash.getRefCount() > 0) {
+            return false;
+        }
+        // An upload that counted itself in after the decrement keeps the content
+        return mongoTemplate.remove(
+            Query.query(Criteria.where("_id").is(contentHash).and("ref_count").lte(0)),
+            MediaHash.class
+        ).getDeletedCount() > 0;
+    }
+
+    // Released files keep holding content for references, but are no longer media items themselves
+    private Query visible(ObjectId id) {
+        return Query.query(Criteria.where("_id").is(id).and("metadata.released").ne(true));
+    }
+
+    // The file holding this content, if there is one
+    private ObjectId findByHash(String contentHash) {
+        MediaHash mediaHash = mongoTemplate.findById(contentHash, MediaHash.class);
+        if (mediaHash == null) {
+            return null;
+        }
+        
+        ObjectId fileId = new ObjectId(mediaHash.getFileId());
+        if (gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(fileId))) == null) {
+            // The file was removed outside the service; forget it so the content is stored again
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(contentHash)), MediaHash.class);
+            return null;
+        }
+        return fileId;
+    }
+
+    String hashContent(ContentSource content) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(content.open(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    void validateUpload(long size, String contentType) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        
+        if (size > MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("File size exceeds maximum limit of 50MB");
+        }
+        
+        if (contentType == null) {
+            throw new IllegalArgumentException("Content type is null");
+        }
+        
+        boolean isValidType = false;
+        for (String[] types : ALLOWED_TYPES.values()) {
+            for (String type : types) {
+                if (contentType.equals(type)) {
+                    isValidType = true;
+                    break;
+                }
+            }
+        }
+        
+        if (!isValidType) {
+            throw new IllegalArgumentException(
+                "Invalid file type. Only images (JPEG, PNG, GIF) and videos (MP4, MOV) are allowed"
+            );
+        }
+    }
+//get MediaType
+    private String getMediaType(String contentType) {
+        if (contentType.startsWith("image/")) {
+            return "image";
+        } else if (contentType.startsWith("video/")) {
+            return "video";
+        }
+        throw new IllegalArgumentException("Unsupported media type: " + contentType);
+    }
+
+    public record MediaDownload(MediaItem media, GridFSFile file) {
+    }
+
+    @FunctionalInterface
+    interface ContentSource {
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,198 @@
+package com.skillshare.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small media files (avatars, post images) held in direct byte buffers
+ * outside the Java heap, together with their file documents so a hit
+ * needs no GridFS round trip at all. The budget is split into
+ * independently locked stripes. Each stripe is a single slab written as
+ * a ring: new files are appended and the oldest files are evicted as the
+ * write position comes round to them.
+ */
+@Slf4j
+@Component
+public class MediaSlabCache {
+    // Bytes copied out of a slab per lock acquisition
+    private static final int COPY_BUFFER_SIZE = 8192;
+    private static final ThreadLocal<byte[]> COPY_BUFFER = ThreadLocal.withInitial(() -> new byte[COPY_BUFFER_SIZE]);
+
+    @Value("${media.slab-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${media.slab-cache.max-object-bytes:262144}")
+    private int maxObjectBytes;
+
+    @Value("${media.slab-cache.stripes:16}")
+    private int stripeCount;
+
+    private Stripe[] stripes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    void allocate() {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, maxBytes / stripeCount);
+        if (capacity < maxObjectBytes) {
+            throw new IllegalStateException("media.slab-cache.max-bytes is too small for "
+                + stripeCount + " stripes of media.slab-cache.max-object-bytes");
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(ByteBuffer.allocateDirect(capacity));
+        }
+        log.info("Media slab cache allocated: {} stripes of {} bytes", stripeCount, capacity);
+    }
+
+    public boolean accepts(long size) {
+        return size > 0 && size <= maxObjectBytes;
+    }
+
+    public MediaService.MediaDownload getDownload(String id) {
+        Stripe stripe = stripeFor(id);
+        synchronized (stripe) {
+            Slot slot = stripe.slots.get(id);
+            return slot == null ? null : slot.download();
+        }
+    }
+
+    /**
+     * Sends bytes start to end (inclusive) of the cached file. Returns
+     * false, without writing anything, when the file is not cached.
+     */
+    public boolean transferTo(String id, long start, long end, OutputStream out) throws IOException {
+        Stripe stripe = stripeFor(id);
+        byte[] buffer = COPY_BUFFER.get();
+        long position = start;
+        Slot expected = null;
+        while (position <= end) {
+            int length = (int) Math.min(buffer.length, end - position + 1);
+            synchronized (stripe) {
+                Slot slot = stripe.slots.get(id);
+                if (expected == null) {
+                    if (slot == null) {
+                        misses.incrementAndGet();
+                        return false;
+                    }
+                    expected = slot;
+                    hits.incrementAndGet();
+                } else if (slot != expected) {
+                    // Overwritten while we were writing the earlier pieces
+                    throw new IOException("Cached media evicted during transfer: " + id);
+                }
+                stripe.slab.get(slot.offset() + (int) position, buffer, 0, length);
+            }
+            out.write(buffer, 0, length);
+            position += length;
+        }
+        return true;
+    }
+
+    public void put(MediaService.MediaDownload download, byte[] content) {
+        if (!accepts(content.length)) {
+            return;
+        }
+        String id = download.media().getId();
+        Stripe stripe = stripeFor(id);
+        synchronized (stripe) {
+            if (!stripe.slots.containsKey(id)) {
+                stripe.append(id, download, content);
+            }
+        }
+    }
+
+    public void evict(String id) {
+        Stripe stripe = stripeFor(id);
+        synchronized (stripe) {
+            stripe.remove(id);
+        }
+    }
+
+    public Stats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        int files = 0;
+        long usedBytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                files += stripe.slots.size();
+                usedBytes += stripe.usedBytes;
+            }
+        }
+        return new Stats(hitCount, missCount, lookups == 0 ? 0 : (double) hitCount / lookups, files, usedBytes, maxBytes);
+    }
+
+    private Stripe stripeFor(String id) {
+        return stripes[Math.floorMod(id.hashCode(), stripes.length)];
+    }
+
+    private record Slot(int offset, int length, MediaService.MediaDownload download) {
+    }
+
+    /**
+     * One slab and its index. Slots are laid out in insertion order, so the
+     * oldest slot is always the next one past the write position.
+     */
+    private static final class Stripe {
+        private final ByteBuffer slab;
+        private final Map<String, Slot> slots = new HashMap<>();
+        private final ArrayDeque<String> order = new ArrayDeque<>();
+        private int head;
+        private long usedBytes;
+
+        Stripe(ByteBuffer slab) {
+            this.slab = slab;
+        }
+
+        void append(String id, MediaService.MediaDownload download, byte[] content) {
+            int length = content.length;
+            if (head + length > slab.capacity()) {
+                // Slots left in the tail were written before the ones at the start
+                while (!order.isEmpty() && slots.get(order.peekFirst()).offset() >= head) {
+                    evictOldest();
+                }
+                head = 0;
+            }
+            while (!order.isEmpty() && slots.get(order.peekFirst()).offset() < head + length
+                && slots.get(order.peekFirst()).offset() >= head) {
+                evictOldest();
+            }
+
+            slab.put(head, content, 0, length);
+            slots.put(id, new Slot(head, length, download));
+            order.addLast(id);
+            usedBytes += length;
+            head += length;
+        }
+
+        // The bytes stay in the slab until the write position comes round to them
+        void remove(String id) {
+            Slot slot = slots.remove(id);
+            if (slot != null) {
+                order.remove(id);
+                usedBytes -= slot.length();
+            }
+        }
+
+        private void evictOldest() {
+            Slot slot = slots.remove(order.removeFirst());
+            usedBytes -= slot.length();
+        }
+    }
+
+    public record Stats(long hits, long misses, double hitRatio, int files, long usedBytes, long maxBytes) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.skillshare.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Routes media content to the store that holds it. New files go to the
+ * store named by media.store; existing files are read from the store
+ * recorded in their file document (GridFS when none is recorded). A file
+ * may instead reference another file's content by id, in which case it is
+ * read from wherever that content currently is.
+ */
+@Slf4j
+@Component
+public class MediaStorage {
+    private static final String STORE_FIELD = "store";
+    private static final String CONTENT_FIELD = "contentId";
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, MediaStore> stores;
+
+    @Value("${spring.data.mongodb.gridfs.bucket:fs}")
+    private String bucket;
+
+    @Value("${media.store:" + GridFsMediaStore.NAME + "}")
+    private String activeStore;
+
+    public MediaStorage(MongoTemplate mongoTemplate, List<MediaStore> stores) {
+        this.mongoTemplate = mongoTemplate;
+        this.stores = stores.stream().collect(Collectors.toMap(MediaStore::name, Function.identity()));
+    }
+
+    /**
+     * Writes the content to the active store, then the file document that
+     * makes it visible.
+     */
+    public ObjectId store(InputStream content, String filename, Document metadata) throws IOException {
+        MediaStore store = getStore(activeStore);
+        ObjectId id = new ObjectId();
+        long length = store.put(id, content);
+
+        Document file = new Document("_id", id)
+            .append("length", length)
+            .append("chunkSize", GridFsMediaStore.CHUNK_SIZE)
+            .append("uploadDate", new Date())
+            .append("filename", filename)
+            .append("metadata", metadata.append(STORE_FIELD, store.name()));
+        try {
+            mongoTemplate.insert(file, filesCollection());
+        } catch (RuntimeException e) {
+            store.delete(id);
+            throw e;
+        }
+        return id;
+    }
+
+    /**
+     * Adds a file document of its own, with its own name and metadata, for
+     * content that an existing file already holds. Nothing is written to a
+     * store.
+     */
+    public ObjectId reference(ObjectId contentId, String filename, Document metadata) {
+        Query query = Query.query(Criteria.where("_id").is(contentId));
+        query.fields().include("length", "chunkSize");
+        Document content = mongoTemplate.findOne(query, Document.class, filesCollection());
+        if (content == null) {
+            throw new IllegalStateException("Media content " + contentId + " no longer exists");
+        }
+
+        ObjectId id = new ObjectId();
+        Document file = new Document("_id", id)
+            .append("length", content.get("length"))
+            .append("chunkSize", content.get("chunkSize"))
+            .append("uploadDate", new Date())
+            .append("filename", filename)
+            .append("metadata", metadata.append(CONTENT_FIELD, contentId));
+        mongoTemplate.insert(file, filesCollection());
+        return id;
+    }
+
+    public InputStream open(GridFSFile file) throws IOException {
+        Content content = contentOf(file);
+        return content.store().open(content.id());
+    }
+
+    public void writeRange(GridFSFile file, long start, long end, OutputStream out) throws IOException {
+        Content content = contentOf(file);
+        content.store().writeRange(content.id(), start, end, out);
+    }
+
+    // The file document goes first so readers stop finding the content before it disappears
+    public void delete(ObjectId id) throws IOException {
+        String name = currentStore(id);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), filesCollection());
+        getStore(name).delete(id);
+    }
+
+    /**
+     * Copies a file's content to the target store, points the file document
+     * at it and removes the old copy. Returns false if the file had already
+     * moved or is gone.
+     */
+    public boolean migrate(ObjectId id, String sourceName, MediaStore target) throws IOException {
+        MediaStore source = getStore(sourceName);
+        if (source == target) {
+            return false;
+        }
+
+        try (InputStream in = source.open(id)) {
+            target.put(id, in);
+        }
+        // Only switch over if nothing else moved the file in the meantime
+        Criteria current = GridFsMediaStore.NAME.equals(sourceName)
+            ? new Criteria().orOperator(
+                Criteria.where("metadata." + STORE_FIELD).is(sourceName),
+                Criteria.where("metadata." + STORE_FIELD).exists(false))
+            : Criteria.where("metadata." + STORE_FIELD).is(sourceName);
+        boolean switched = mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(id)).addCriteria(current),
+            Update.update("metadata." + STORE_FIELD, target.name()),
+            filesCollection()
+        ).getModifiedCount() > 0;
+
+        if (switched) {
+            source.delete(id);
+        } else if (!target.name().equals(currentStore(id))) {
+            target.delete(id);
+        }
+        return switched;
+    }
+
+    public MediaStore getStore(String name) {
+        MediaStore store = stores.get(name);
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown media store: " + name);
+        }
+        return store;
+    }
+
+    public List<MediaStore> getStores() {
+        return List.copyOf(stores.values());
+    }
+
+    private Content contentOf(GridFSFile file) {
+        Document metadata = file.getMetadata();
+        ObjectId contentId = metadata == null ? null : metadata.getObjectId(CONTENT_FIELD);
+        if (contentId != null) {
+            // Looked up on each read, since the content may have been migrated after the reference was made
+            return new Content(getStore(currentStore(contentId)), contentId);
+        }
+        String name = metadata == null ? null : metadata.getString(STORE_FIELD);
+        return new Content(getStore(name == null ? GridFsMediaStore.NAME : name), file.getObjectId());
+    }
+
+    private String currentStore(ObjectId id) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include("metadata." + STORE_FIELD);
+        Document file = mongoTemplate.findOne(query, Document.class, filesCollection());
+        Document metadata = file == null ? null : file.get("metadata", Document.class);
+        String name = metadata == null ? null : metadata.getString(STORE_FIELD);
+        return name == null ? GridFsMediaStore.NAME : name;
+    }
+
+    private String filesCollection() {
+        return bucket + ".files";
+    }
+
+    private record Content(MediaStore store, ObjectId id) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.skillshare.service;
+
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Where media content lives. Every store keeps only the bytes, keyed by
+ * the media id; the file document with its metadata stays in the GridFS
+ * files collection whichever store holds the content, and records the
+ * store's name.
+ */
+public interface MediaStore {
+    String name();
+
+    /**
+     * Writes the content under the id and returns its length. Readers
+     * never see partly written content.
+     */
+    long put(ObjectId id, InputStream content) throws IOException;
+
+    InputStream open(ObjectId id) throws IOException;
+
+    /**
+     * Writes bytes start to end (inclusive) without reading the rest.
+     */
+    void writeRange(ObjectId id, long start, long end, OutputStream out) throws IOException;
+
+    void delete(ObjectId id) throws IOException;
+}
@@ -0,0 +1,86 @@
+package com.skillshare.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Moves the content of every media file into one store, file by file.
+ * Each file keeps being served from its old store until its copy is
+ * complete. Safe to stop and run again: moved files are skipped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaStoreMigrationService implements ApplicationRunner {
+    private final MongoTemplate mongoTemplate;
+    private final MediaStorage mediaStorage;
+
+    @Value("${spring.data.mongodb.gridfs.bucket:fs}")
+    private String bucket;
+
+    // Name of the store to move everything into; empty to leave media where it is
+    @Value("${media.migrate-to:}")
+    private String migrateTo;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!migrateTo.isEmpty()) {
+            migrateAll(migrateTo);
+        }
+    }
+
+    public long migrateAll(String targetName) {
+        MediaStore target = mediaStorage.getStore(targetName);
+        log.info("Migrating media content into the {} store", target.name());
+        long started = System.currentTimeMillis();
+
+        // Files without a recorded store are in GridFS
+        Criteria elsewhere = GridFsMediaStore.NAME.equals(target.name())
+            ? Criteria.where("metadata.store").exists(true).ne(target.name())
+            : Criteria.where("metadata.store").ne(target.name());
+        // Files referencing another file's content have none of their own to move
+        Query query = Query.query(elsewhere).addCriteria(Criteria.where("metadata.contentId").exists(false));
+        query.fields().include("_id", "length", "metadata.store");
+
+        // Collect first so the cursor is not held open across slow copies
+        List<Document> files = new ArrayList<>();
+        try (Stream<Document> stream = mongoTemplate.stream(query, Document.class, bucket + ".files")) {
+            stream.forEach(files::add);
+        }
+
+        long moved = 0;
+        long bytes = 0;
+        long failed = 0;
+        for (Document file : files) {
+            Document metadata = file.get("metadata", Document.class);
+            String source = metadata == null || metadata.getString("store") == null
+                ? GridFsMediaStore.NAME
+                : metadata.getString("store");
+            try {
+                if (mediaStorage.migrate(file.getObjectId("_id"), source, target)) {
+                    moved++;
+                    bytes += ((Number) file.get("length")).longValue();
+                }
+            } catch (Exception e) {
+                failed++;
+                log.warn("Failed to migrate media {} from {}", file.getObjectId("_id"), source, e);
+            }
+        }
+
+        log.info("Media migration finished: {} files ({} bytes) moved to {}, {} failed in {} ms",
+            moved, bytes, target.name(), failed, System.currentTimeMillis() - started);
+        return moved;
+    }
+}
@@ -0,0 +1,253 @@
+package com.skillshare.service;
+
+import com.skillshare.model.MediaItem;
+import com.skillshare.model.MediaUpload;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Resumable uploads: a client declares the file, sends it in chunks at
+ * explicit offsets (resuming from the reported offset after a failure)
+ * and finalizes it once every byte has arrived. Chunks are streamed into
+ * a temp file through a fixed buffer, and uploads left idle are removed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaUploadService {
+    private final MongoTemplate mongoTemplate;
+    private final MediaService mediaService;
+
+    @Value("${media.uploads.dir:${java.io.tmpdir}/skillshare-uploads}")
+    private String directoryName;
+
+    @Value("${media.uploads.expiry-hours:24}")
+    private long expiryHours;
+
+    @Value("${media.stream-buffer-size:65536}")
+    private int bufferSize;
+
+    public MediaUpload initiate(String userId, String filename, String contentType, long size, String description)
+        throws IOException {
+        mediaService.validateUpload(size, contentType);
+
+        Instant now = Instant.now();
+        MediaUpload upload = mongoTemplate.insert(MediaUpload.builder()
+            .userId(userId)
+            .filename(filename)
+            .contentType(contentType)
+            .description(description)
+            .size(size)
+            .received(0)
+            .createdAt(now)
+            .updatedAt(now)
+            .build());
+        Files.createDirectories(directory());
+        Files.createFile(partFile(upload.getId()));
+        return upload;
+    }
+
+    public MediaUpload getUpload(String uploadId, String userId) throws IOException {
+        MediaUpload upload = mongoTemplate.findById(uploadId, MediaUpload.class);
+        if (upload == null || !upload.getUserId().equals(userId)) {
+            return null;
+        }
+        if (!Files.exists(partFile(uploadId))) {
+            // Received bytes are gone (node replaced or temp dir cleared); the client has to start over
+            discard(uploadId);
+            return null;
+        }
+        return upload;
+    }
+
+    /**
+     * Appends a chunk at the given offset, which must be the number of bytes
+     * received so far. Bytes written before a dropped connection are kept,
+     * so the client resumes from the offset reported afterwards.
+     */
+    public ChunkResult appendChunk(MediaUpload upload, long offset, InputStream in) throws IOException {
+        Path part = partFile(upload.getId());
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                // Another chunk for this upload is still being written
+                return new ChunkResult(ChunkStatus.BUSY, channel.size());
+            }
+
+            try (lock) {
+                long received = channel.size();
+                if (offset != received) {
+                    return new ChunkResult(ChunkStatus.OFFSET_MISMATCH, received);
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+                byte[] bytes = buffer.array();
+                long position = offset;
+                try {
+                    int read;
+                    while ((read = in.read(bytes)) != -1) {
+                        if (position + read > upload.getSize()) {
+                            return new ChunkResult(ChunkStatus.TOO_LARGE, position);
+                        }
+                        buffer.clear().limit(read);
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                    }
+                } finally {
+                    mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(upload.getId())),
+                        new Update().set("received", position).set("updated_at", Instant.now()),
+                        MediaUpload.class
+                    );
+                }
+                return new ChunkResult(ChunkStatus.ACCEPTED, position);
+            }
+        }
+    }
+
+    // Null when another thread or process holds the lock
+    private FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the completed upload as a media item, deduplicated against
+     * existing content. Returns null if bytes are still missing or a chunk
+     * or another completion for the upload is in progress. The part file
+     * stays locked until it has been stored and discarded, so no chunk can
+     * change it in between.
+     */
+    public MediaItem complete(MediaUpload upload) throws IOException {
+        Path part = partFile(upload.getId());
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(part, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            // Already completed or cancelled by a concurrent request
+            return null;
+        }
+
+        try (channel) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                return null;
+            }
+
+            try (lock) {
+                if (channel.size() != upload.getSize()) {
+                    return null;
+                }
+
+                MediaItem media = mediaService.storeDeduplicated(
+                    mediaService.hashContent(() -> Files.newInputStream(part)),
+                    () -> Files.newInputStream(part),
+                    upload.getFilename(),
+                    upload.getContentType(),
+                    upload.getDescription(),
+                    upload.getSize()
+                );
+                discard(upload.getId());
+                return media;
+            }
+        }
+    }
+
+    public void cancel(MediaUpload upload) throws IOException {
+        discard(upload.getId());
+    }
+
+    @Scheduled(cron = "${media.uploads.cleanup-cron:0 15 * * * *}")
+    public void removeAbandonedUploads() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(expiryHours));
+        Query query = Query.query(Criteria.where("updated_at").lt(cutoff));
+        query.fields().include("_id");
+
+        List<MediaUpload> abandoned = mongoTemplate.find(query, MediaUpload.class);
+        for (MediaUpload upload : abandoned) {
+            try {
+                discard(upload.getId());
+            } catch (IOException e) {
+                log.warn("Failed to remove abandoned upload {}", upload.getId(), e);
+            }
+        }
+        if (!abandoned.isEmpty()) {
+            log.info("Removed {} abandoned uploads", abandoned.size());
+        }
+
+        // Part files whose upload document never made it or was already removed
+        if (!Files.isDirectory(directory())) {
+            return;
+        }
+        try (Stream<Path> parts = Files.list(directory())) {
+            parts.filter(part -> isOlderThan(part, cutoff)).forEach(part -> {
+                try {
+                    Files.deleteIfExists(part);
+                } catch (IOException e) {
+                    log.warn("Failed to remove stale upload file {}", part, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to list upload directory {}", directory(), e);
+        }
+    }
+
+    private boolean isOlderThan(Path part, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(part).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void discard(String uploadId) throws IOException {
+        Files.deleteIfExists(partFile(uploadId));
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(uploadId)), MediaUpload.class);
+    }
+
+    private Path directory() {
+        return Path.of(directoryName);
+    }
+
+    private Path partFile(String uploadId) {
+        return directory().resolve(uploadId + ".part");
+    }
+
+    public enum ChunkStatus {
+        ACCEPTED,
+        // The offset did not match the bytes received so far
+        OFFSET_MISMATCH,
+        // The chunk would run past the declared size
+        TOO_LARGE,
+        BUSY
+    }
+
+    public record ChunkResult(ChunkStatus status, long received) {
+    }
+}
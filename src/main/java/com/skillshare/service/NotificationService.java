@@ -0,0 +1,359 @@
+package com.skillshare.service;
+
+import com.mongodb.MongoCommandException;
+import com.skillshare.model.CursorPage;
+import com.skillshare.model.Notification;
+import com.skillshare.model.NotificationBucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationService {
+    static final String ARCHIVE_COLLECTION = "notifications_archive";
+    private static final String TTL_INDEX = "created_at_ttl";
+    private static final String BUCKET_TTL_INDEX = "day_ttl";
+    private static final String ARCHIVE_TTL_INDEX = "created_at_ttl";
+    private static final int MAX_BUCKET_ATTEMPTS = 5;
+    private static final int ARCHIVE_BATCH_SIZE = 500;
+    private static final int BUCKET_FETCH_SIZE = 4;
+    private static final Comparator<Notification> NEWEST_FIRST = Comparator
+        .comparing(Notification::getCreatedAt)
+        .thenComparing(Notification::getId)
+        .reversed();
+
+    public enum StorageMode {
+        // One document per notification in "notifications"
+        DOCUMENT,
+        // Notifications pushed into per-user, per-day documents in "notification_buckets"
+        BUCKET
+    }
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${notifications.storage-mode:DOCUMENT}")
+    private StorageMode storageMode;
+
+    @Value("${notifications.bucket-size:200}")
+    private int bucketSize;
+
+    @Value("${notifications.page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${notifications.max-page-size:100}")
+    private int maxPageSize;
+
+    // 0 keeps notifications forever
+    @Value("${notifications.retention-days:90}")
+    private int retentionDays;
+
+    // 0 disables archiving of read notifications
+    @Value("${notifications.archive-read-after-days:30}")
+    private int archiveReadAfterDays;
+
+    // 0 keeps archived notifications forever
+    @Value("${notifications.archive-retention-days:365}")
+    private int archiveRetentionDays;
+
+    /**
+     * Bucket indexes are declared on NotificationBucket. The TTL indexes
+     * depend on configured retention and are rebuilt when it changes, and
+     * the archive collection has no entity, so those are created here.
+     * Notification's own query indexes stay here too: declared on the class,
+     * they would also be built over the notifications embedded in buckets.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        log.info("Notification storage mode: {}", storageMode);
+
+        IndexOperations indexOps = mongoTemplate.indexOps(Notification.class);
+        indexOps.ensureIndex(new Index()
+            .on("user_id", Sort.Direction.ASC)
+            .on("created_at", Sort.Direction.DESC)
+            .on("_id", Sort.Direction.DESC)
+            .named("user_created_idx"));
+        indexOps.ensureIndex(new Index()
+            .on("user_id", Sort.Direction.ASC)
+            .on("read", Sort.Direction.ASC)
+            .on("created_at", Sort.Direction.DESC)
+            .named("user_read_created_idx"));
+        ensureTtlIndex(indexOps, "created_at", TTL_INDEX, retentionDays);
+        ensureTtlIndex(mongoTemplate.indexOps(NotificationBucket.class), "day", BUCKET_TTL_INDEX, retentionDays);
+        ensureTtlIndex(mongoTemplate.indexOps(ARCHIVE_COLLECTION), "created_at", ARCHIVE_TTL_INDEX, archiveRetentionDays);
+    }
+
+    public Notification create(Notification notification) {
+        if (notification.getCreatedAt() == null) {
+            notification.setCreatedAt(Instant.now());
+        }
+        if (storageMode == StorageMode.DOCUMENT) {
+            return mongoTemplate.save(notification);
+        }
+
+        notification.setId(new ObjectId().toHexString());
+        Instant day = notification.getCreatedAt().truncatedTo(ChronoUnit.DAYS);
+        Update update = new Update()
+            .push("notifications", notification)
+            .inc("count", 1)
+            .inc("unread_count", notification.isRead() ? 0 : 1)
+            .set("updated_at", Instant.now());
+
+        for (int attempt = 0; attempt < MAX_BUCKET_ATTEMPTS; attempt++) {
+            // Matches only the open bucket with room left, so a full one makes the upsert insert the next
+            Query query = Query.query(Criteria.where("user_id").is(notification.getUserId())
+                .and("day").is(day)
+                .and("seq").is(openBucketSeq(notification.getUserId(), day))
+                .and("count").lt(bucketSize));
+            try {
+                mongoTemplate.upsert(query, update, NotificationBucket.class);
+                return notification;
+            } catch (DuplicateKeyException e) {
+                // Another push filled the bucket or opened it first; look again
+            }
+        }
+        throw new IllegalStateException("Could not find a notification bucket for user " + notification.getUserId());
+    }
+
+    private int openBucketSeq(String userId, Instant day) {
+        Query query = Query.query(Criteria.where("user_id").is(userId).and("day").is(day).and("seq").exists(true))
+            .with(Sort.by(Sort.Direction.DESC, "seq"))
+            .limit(1);
+        query.fields().include("seq", "count");
+        NotificationBucket latest = mongoTemplate.findOne(query, NotificationBucket.class);
+        if (latest == null) {
+            return 0;
+        }
+        return latest.getCount() < bucketSize ? latest.getSeq() : latest.getSeq() + 1;
+    }
+
+    public CursorPage<Notification> getNotifications(String userId, boolean unreadOnly, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        List<Notification> notifications = storageMode == StorageMode.DOCUMENT
+            ? findDocuments(userId, unreadOnly, cursor, pageSize + 1)
+            : findInBuckets(userId, unreadOnly, cursor, pageSize + 1);
+
+        String nextCursor = null;
+        if (notifications.size() > pageSize) {
+            notifications = notifications.subList(0, pageSize);
+            Notification last = notifications.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return CursorPage.<Notification>builder()
+            .items(notifications)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    public long countUnread(String userId) {
+        if (storageMode == StorageMode.DOCUMENT) {
+            return mongoTemplate.count(
+                Query.query(Criteria.where("user_id").is(userId).and("read").is(false)),
+                Notification.class
+            );
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("user_id").is(userId).and("unread_count").gt(0)),
+            Aggregation.group().sum("unread_count").as("total")
+        );
+        Document result = mongoTemplate
+            .aggregate(aggregation, NotificationBucket.class, Document.class)
+            .getUniqueMappedResult();
+        return result == null ? 0 : ((Number) result.get("total")).longValue();
+    }
+
+    public Optional<Notification> markAsRead(String userId, String notificationId) {
+        if (storageMode == StorageMode.DOCUMENT) {
+            return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(notificationId).and("user_id").is(userId)),
+                Update.update("read", true),
+                FindAndModifyOptions.options().returnNew(true),
+                Notification.class
+            ));
+        }
+
+        Query unreadQuery = Query.query(Criteria.where("user_id").is(userId)
+            .and("notifications").elemMatch(Criteria.where("_id").is(notificationId).and("read").is(false)));
+        mongoTemplate.updateFirst(
+            unreadQuery,
+            new Update().set("notifications.$.read", true).inc("unread_count", -1),
+            NotificationBucket.class
+        );
+
+        Query bucketQuery = Query.query(Criteria.where("user_id").is(userId).and("notifications._id").is(notificationId));
+        bucketQuery.fields().elemMatch("notifications", Criteria.where("_id").is(notificationId));
+        NotificationBucket bucket = mongoTemplate.findOne(bucketQuery, NotificationBucket.class);
+        return bucket == null
+            ? Optional.empty()
+            : bucket.getNotifications().stream().filter(n -> notificationId.equals(n.getId())).findFirst();
+    }
+
+    public void markAllAsRead(String userId) {
+        if (storageMode == StorageMode.DOCUMENT) {
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("user_id").is(userId).and("read").is(false)),
+                Update.update("read", true),
+                Notification.class
+            );
+            return;
+        }
+
+        mongoTemplate.updateMulti(
+            Query.query(Criteria.where("user_id").is(userId).and("unread_count").gt(0)),
+            new Update().set("notifications.$[].read", true).set("unread_count", 0),
+            NotificationBucket.class
+        );
+    }
+
+    @Scheduled(cron = "${notifications.archive-cron:0 30 3 * * *}")
+    public void archiveReadNotifications() {
+        // Buckets are only ever expired as a whole by their TTL index
+        if (archiveReadAfterDays <= 0 || storageMode != StorageMode.DOCUMENT) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(Duration.ofDays(archiveReadAfterDays));
+        Query query = Query.query(Criteria.where("read").is(true).and("created_at").lt(cutoff))
+            .limit(ARCHIVE_BATCH_SIZE);
+
+        long archived = 0;
+        List<Document> batch;
+        do {
+            batch = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Notification.class));
+            if (batch.isEmpty()) {
+                break;
+            }
+            BulkOperations archive = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ARCHIVE_COLLECTION);
+            // Upsert so a batch interrupted before its delete can be replayed safely
+            batch.forEach(document -> archive.replaceOne(
+                Query.query(Criteria.where("_id").is(document.get("_id"))),
+                document,
+                FindAndReplaceOptions.options().upsert()
+            ));
+            archive.execute();
+            List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Notification.class);
+            archived += batch.size();
+        } while (batch.size() == ARCHIVE_BATCH_SIZE);
+
+        if (archived > 0) {
+            log.info("Archived {} read notifications older than {}", archived, cutoff);
+        }
+    }
+
+    private List<Notification> findDocuments(String userId, boolean unreadOnly, String cursor, int limit) {
+        Criteria criteria = Criteria.where("user_id").is(userId);
+        if (unreadOnly) {
+            criteria = criteria.and("read").is(false);
+        }
+        Query query = Query.query(criteria);
+        if (cursor != null && !cursor.isBlank()) {
+            query.addCriteria(CursorCodec.olderThan("created_at", cursor));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "created_at").and(Sort.by(Sort.Direction.DESC, "_id")))
+            .limit(limit);
+        return mongoTemplate.find(query, Notification.class);
+    }
+
+    private List<Notification> findInBuckets(String userId, boolean unreadOnly, String cursor, int limit) {
+        CursorCodec.Position position = cursor == null || cursor.isBlank() ? null : CursorCodec.decode(cursor);
+
+        Criteria criteria = Criteria.where("user_id").is(userId);
+        if (unreadOnly) {
+            criteria = criteria.and("unread_count").gt(0);
+        }
+        if (position != null) {
+            criteria = criteria.and("day").lte(position.createdAt().truncatedTo(ChronoUnit.DAYS));
+        }
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.DESC, "day").and(Sort.by(Sort.Direction.DESC, "_id")))
+            .limit(BUCKET_FETCH_SIZE);
+
+        List<Notification> result = new ArrayList<>();
+        int skip = 0;
+        while (result.size() < limit) {
+            List<NotificationBucket> buckets = mongoTemplate.find(query.skip(skip), NotificationBucket.class);
+            for (NotificationBucket bucket : buckets) {
+                bucket.getNotifications().stream()
+                    .filter(n -> !unreadOnly || !n.isRead())
+                    .filter(n -> position == null || isOlder(n, position))
+                    .forEach(result::add);
+            }
+            if (buckets.size() < BUCKET_FETCH_SIZE) {
+                break;
+            }
+            skip += BUCKET_FETCH_SIZE;
+        }
+
+        result.sort(NEWEST_FIRST);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private boolean isOlder(Notification notification, CursorCodec.Position position) {
+        int byTime = notification.getCreatedAt().compareTo(position.createdAt());
+        return byTime < 0 || (byTime == 0 && notification.getId().compareTo(position.id()) < 0);
+    }
+
+    private void ensureTtlIndex(IndexOperations indexOps, String field, String name, int retentionDays) {
+        if (retentionDays <= 0) {
+            dropIndexIfPresent(indexOps, name);
+            return;
+        }
+
+        Index ttlIndex = new Index()
+            .on(field, Sort.Direction.ASC)
+            .named(name)
+            .expire(Duration.ofDays(retentionDays));
+        try {
+            indexOps.ensureIndex(ttlIndex);
+        } catch (UncategorizedMongoDbException | MongoCommandException e) {
+            // Retention period changed since the index was built
+            log.info("Recreating TTL index {} with {} day retention", name, retentionDays);
+            dropIndexIfPresent(indexOps, name);
+            indexOps.ensureIndex(ttlIndex);
+        }
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private void dropIndexIfPresent(IndexOperations indexOps, String name) {
+        boolean present = indexOps.getIndexInfo().stream().anyMatch(info -> info.getName().equals(name));
+        if (present) {
+            indexOps.dropIndex(name);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.skillshare.service;
+
+import com.skillshare.model.LearningPlan;
+import com.skillshare.model.LearningProgress;
+import com.skillshare.model.Post;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Learning plan recommendations driven by the skills users record in their
+ * posts' progress templates. Skills that are learned together in a post
+ * are counted in a co-occurrence matrix. A user's recommendations favour
+ * plans for skills related to the ones they post about, at the level after
+ * the one they have reached. Recommendations are precomputed in the
+ * background, so serving them is a map lookup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlanRecommendationService {
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${recommendations.max-results:20}")
+    private int maxResults;
+
+    // Users whose lists are kept; the least recently served are dropped and recomputed on their next request
+    @Value("${recommendations.max-users:100000}")
+    private int maxUsers;
+
+    // Ordered from first to last level; matched case-insensitively
+    @Value("${recommendations.skill-levels:beginner,intermediate,advanced}")
+    private List<String> skillLevels;
+
+    // skill -> related skill -> number of posts mentioning both
+    private final Map<String, Map<String, Integer>> cooccurrence = new ConcurrentHashMap<>();
+    // user -> skill -> number of the user's posts mentioning it
+    private final Map<String, Map<String, Integer>> userSkills = new ConcurrentHashMap<>();
+    // Serializes matrix writes so posts recorded during a rebuild's scan are not cleared away
+    private final Object matrixLock = new Object();
+    // user -> recommended plan ids, least recently served evicted first; guarded by recommendationsLock
+    private Map<String, List<String>> recommendations;
+    private final Object recommendationsLock = new Object();
+    private final Set<String> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private volatile PlanCatalog catalog = new PlanCatalog(Map.of(), Map.of(), Map.of());
+    // Serializes catalog replacements; readers use whichever catalog is current
+    private final Object catalogLock = new Object();
+
+    public List<String> getRecommendations(String userId, int limit) {
+        List<String> planIds;
+        synchronized (recommendationsLock) {
+            planIds = recommendations().get(userId);
+        }
+        if (planIds == null) {
+            dirtyUsers.add(userId);
+            return List.of();
+        }
+        // Plans deleted since the user's list was computed are left out
+        PlanCatalog plans = catalog;
+        return planIds.stream().filter(plans.byId()::containsKey).limit(limit).toList();
+    }
+
+    public void recordPlanCreated(LearningPlan plan) {
+        updateCatalog(null, plan);
+    }
+
+    public void recordPlanUpdated(LearningPlan before, LearningPlan after) {
+        updateCatalog(before, after);
+    }
+
+    public void recordPlanDeleted(LearningPlan plan) {
+        updateCatalog(plan, null);
+    }
+
+    /**
+     * Applies a post create (before == null), update or delete
+     * (after == null) to the matrix and queues the author for recomputation.
+     */
+    public void recordPost(Post before, Post after) {
+        synchronized (matrixLock) {
+            if (before != null) {
+                apply(before.getUserId(), skillsOf(before), -1);
+            }
+            if (after != null) {
+                apply(after.getUserId(), skillsOf(after), 1);
+            }
+        }
+        Post post = after != null ? after : before;
+        if (post != null && post.getUserId() != null) {
+            dirtyUsers.add(post.getUserId());
+        }
+    }
+
+    // Enrolled plans are excluded and raise the target level, so the list changes with them
+    public void recordEnrollmentChanged(String userId) {
+        dirtyUsers.add(userId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${recommendations.rebuild-cron:0 0 4 * * *}")
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        Query posts = Query.query(Criteria.where("progress_template.skills_learned.0").exists(true));
+        posts.fields().include("user_id", "progress_template.skills_learned");
+        synchronized (matrixLock) {
+            cooccurrence.clear();
+            userSkills.clear();
+            try (Stream<Post> stream = mongoTemplate.stream(posts, Post.class)) {
+                stream.forEach(post -> apply(post.getUserId(), skillsOf(post), 1));
+            }
+        }
+        reloadPlans();
+
+        dirtyUsers.addAll(userSkills.keySet());
+        synchronized (recommendationsLock) {
+            dirtyUsers.addAll(recommendations().keySet());
+        }
+        refreshDirtyUsers();
+        int users;
+        synchronized (recommendationsLock) {
+            users = recommendations().size();
+        }
+        log.info("Plan recommendations rebuilt: {} skills, {} users in {} ms",
+            cooccurrence.size(), users, System.currentTimeMillis() - started);
+    }
+
+    @Scheduled(fixedDelayString = "${recommendations.refresh-delay-ms:30000}")
+    public synchronized void refreshDirtyUsers() {
+        for (String userId : new ArrayList<>(dirtyUsers)) {
+            dirtyUsers.remove(userId);
+            List<String> planIds = compute(userId);
+            synchronized (recommendationsLock) {
+                recommendations().put(userId, planIds);
+            }
+        }
+    }
+
+    private Map<String, List<String>> recommendations() {
+        synchronized (recommendationsLock) {
+            if (recommendations == null) {
+                recommendations = new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                        return size() > maxUsers;
+                    }
+                };
+            }
+            return recommendations;
+        }
+    }
+
+    private List<String> compute(String userId) {
+        Map<String, Integer> profile = userSkills.getOrDefault(userId, Map.of());
+        if (profile.isEmpty()) {
+            return List.of();
+        }
+
+        // Related skills weighted by how often they co-occur with the user's own
+        Map<String, Double> skillScores = new HashMap<>();
+        profile.forEach((skill, weight) -> {
+            skillScores.merge(skill, (double) weight, Double::sum);
+            cooccurrence.getOrDefault(skill, Map.of()).forEach((related, together) ->
+                skillScores.merge(related, (double) weight * together, Double::sum));
+        });
+
+        PlanCatalog plans = catalog;
+        Set<String> enrolled = enrolledPlans(userId);
+        Set<String> excluded = new HashSet<>(enrolled);
+        excluded.addAll(plans.byAuthor().getOrDefault(userId, Set.of()));
+
+        // Highest level per skill among the plans the user is enrolled in
+        Map<String, Integer> reachedLevels = new HashMap<>();
+        enrolled.stream().map(plans.byId()::get).filter(Objects::nonNull)
+            .forEach(plan -> reachedLevels.merge(plan.skill(), plan.level(), Math::max));
+
+        Map<String, Double> planScores = new HashMap<>();
+        skillScores.forEach((skill, score) -> {
+            int targetLevel = profile.containsKey(skill) || reachedLevels.containsKey(skill)
+                ? reachedLevels.getOrDefault(skill, 0) + 1
+                : 0;
+            for (PlanRef plan : plans.bySkill().getOrDefault(skill, List.of())) {
+                if (excluded.contains(plan.id())) {
+                    continue;
+                }
+                double levelFit = plan.level() == targetLevel ? 1.0 : plan.level() < targetLevel ? 0.1 : 0.5;
+                planScores.merge(plan.id(), score * levelFit, Double::sum);
+            }
+        });
+
+        return planScores.entrySet().stream()
+            .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()))
+            .limit(maxResults)
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+
+    private Set<String> enrolledPlans(String userId) {
+        Query progress = Query.query(Criteria.where("user_id").is(userId));
+        progress.fields().include("plan_id");
+        Set<String> enrolled = new HashSet<>();
+        mongoTemplate.find(progress, LearningProgress.class).forEach(p -> enrolled.add(p.getPlanId()));
+        return enrolled;
+    }
+
+    /**
+     * Applies a plan write to a copy of the catalog so recommendations see
+     * it before the next rebuild. The author is queued for recomputation,
+     * since their own plans are never recommended to them.
+     */
+    private void updateCatalog(LearningPlan before, LearningPlan after) {
+        synchronized (catalogLock) {
+            PlanCatalog current = catalog;
+            Map<String, List<PlanRef>> bySkill = new HashMap<>(current.bySkill());
+            Map<String, PlanRef> byId = new HashMap<>(current.byId());
+            Map<String, Set<String>> byAuthor = new HashMap<>(current.byAuthor());
+
+            if (before != null) {
+                PlanRef removed = byId.remove(before.getId());
+                if (removed != null) {
+                    List<PlanRef> plans = new ArrayList<>(bySkill.getOrDefault(removed.skill(), List.of()));
+                    plans.remove(removed);
+                    if (plans.isEmpty()) {
+                        bySkill.remove(removed.skill());
+                    } else {
+                        bySkill.put(removed.skill(), plans);
+                    }
+                }
+                if (before.getUserId() != null) {
+                    Set<String> authored = new HashSet<>(byAuthor.getOrDefault(before.getUserId(), Set.of()));
+                    authored.remove(before.getId());
+                    if (authored.isEmpty()) {
+                        byAuthor.remove(before.getUserId());
+                    } else {
+                        byAuthor.put(before.getUserId(), authored);
+                    }
+                }
+            }
+
+            if (after != null) {
+                PlanRef added = planRef(after.getId(), after.getSkill(), after.getSkillLevel());
+                if (added != null) {
+                    List<PlanRef> plans = new ArrayList<>(bySkill.getOrDefault(added.skill(), List.of()));
+                    plans.add(added);
+                    bySkill.put(added.skill(), plans);
+                    byId.put(added.id(), added);
+                    if (after.getUserId() != null) {
+                        Set<String> authored = new HashSet<>(byAuthor.getOrDefault(after.getUserId(), Set.of()));
+                        authored.add(added.id());
+                        byAuthor.put(after.getUserId(), authored);
+                    }
+                }
+            }
+
+            catalog = new PlanCatalog(bySkill, byId, byAuthor);
+        }
+        if (after != null && after.getUserId() != null) {
+            dirtyUsers.add(after.getUserId());
+        }
+    }
+
+    // Held for the whole scan so plan writes made meanwhile are not lost
+    private void reloadPlans() {
+        Query query = new Query();
+        query.fields().include("_id", "user_id", "skill", "skill_level");
+
+        Map<String, List<PlanRef>> bySkill = new HashMap<>();
+        Map<String, PlanRef> byId = new HashMap<>();
+        Map<String, Set<String>> byAuthor = new HashMap<>();
+        synchronized (catalogLock) {
+            try (Stream<Document> stream = mongoTemplate.stream(
+                query, Document.class, mongoTemplate.getCollectionName(LearningPlan.class)
+            )) {
+                stream.forEach(plan -> {
+                    PlanRef ref = planRef(plan.get("_id").toString(), plan.getString("skill"), plan.getString("skill_level"));
+                    if (ref == null) {
+                        return;
+                    }
+                    bySkill.computeIfAbsent(ref.skill(), key -> new ArrayList<>()).add(ref);
+                    byId.put(ref.id(), ref);
+                    String authorId = plan.getString("user_id");
+                    if (authorId != null) {
+                        byAuthor.computeIfAbsent(authorId, key -> new HashSet<>()).add(ref.id());
+                    }
+                });
+            }
+            catalog = new PlanCatalog(bySkill, byId, byAuthor);
+        }
+    }
+
+    // Null for plans without a skill, which can never be recommended
+    private PlanRef planRef(String id, String skill, String skillLevel) {
+        String normalized = normalize(skill);
+        return normalized.isEmpty() ? null : new PlanRef(id, normalized, levelIndex(skillLevel));
+    }
+
+    private void apply(String userId, Set<String> skills, int delta) {
+        if (userId == null || skills.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> profile = userSkills.computeIfAbsent(userId, key -> new ConcurrentHashMap<>());
+        for (String skill : skills) {
+            adjust(profile, skill, delta);
+            Map<String, Integer> row = cooccurrence.computeIfAbsent(skill, key -> new ConcurrentHashMap<>());
+            for (String other : skills) {
+                if (!other.equals(skill)) {
+                    adjust(row, other, delta);
+                }
+            }
+        }
+    }
+
+    private void adjust(Map<String, Integer> counts, String key, int delta) {
+        counts.merge(key, delta, (current, change) -> current + change <= 0 ? null : current + change);
+    }
+
+    private Set<String> skillsOf(Post post) {
+        Set<String> skills = new LinkedHashSet<>();
+        if (post.getProgressTemplate() != null && post.getProgressTemplate().getSkillsLearned() != null) {
+            post.getProgressTemplate().getSkillsLearned().stream()
+                .map(PlanRecommendationService::normalize)
+                .filter(skill -> !skill.isEmpty())
+                .forEach(skills::add);
+        }
+        return skills;
+    }
+
+    private int levelIndex(String level) {
+        int index = level == null ? -1 : skillLevels.indexOf(level.trim().toLowerCase(Locale.ROOT));
+        return Math.max(index, 0);
+    }
+
+    private static String normalize(String skill) {
+        return skill == null ? "" : skill.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record PlanRef(String id, String skill, int level) {
+    }
+
+    private record PlanCatalog(
+        Map<String, List<PlanRef>> bySkill,
+        Map<String, PlanRef> byId,
+        Map<String, Set<String>> byAuthor
+    ) {
+    }
+}
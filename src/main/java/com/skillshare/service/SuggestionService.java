@@ -0,0 +1,212 @@
+package com.skillshare.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * "Who to follow" suggestions: users followed by the people you follow,
+ * ranked by how many of them follow each candidate.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SuggestionService {
+    // Followees scored per fork/join leaf
+    private static final int LEAF_SIZE = 64;
+
+    private final FollowGraph followGraph;
+
+    @Value("${suggestions.max-results:50}")
+    private int maxResults;
+
+    @Value("${suggestions.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${suggestions.cache-ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
+    private Map<String, CachedSuggestions> cache;
+
+    public List<String> suggest(String userId, int limit) {
+        CachedSuggestions cached;
+        synchronized (this) {
+            cached = cache().get(userId);
+        }
+        if (cached == null || cached.isExpired()) {
+            cached = new CachedSuggestions(compute(userId), System.currentTimeMillis() + cacheTtlSeconds * 1000);
+            synchronized (this) {
+                cache().put(userId, cached);
+            }
+        }
+        List<String> ids = cached.userIds();
+        return ids.subList(0, Math.min(limit, ids.size()));
+    }
+
+    public void recordFollow(String followerId, String followeeId) {
+        followGraph.addEdge(followerId, followeeId);
+        invalidate(followerId);
+    }
+
+    public void recordUnfollow(String followerId, String followeeId) {
+        followGraph.removeEdge(followerId, followeeId);
+        invalidate(followerId);
+    }
+
+    public synchronized void invalidate(String userId) {
+        cache().remove(userId);
+    }
+
+    private List<String> compute(String userId) {
+        return followGraph.read(graph -> {
+            int user = graph.indexOf(userId);
+            if (user < 0) {
+                return List.of();
+            }
+
+            int[] followees = graph.following(user);
+            if (followees.length == 0) {
+                return List.of();
+            }
+
+            Counts counts = ForkJoinPool.commonPool()
+                .invoke(new CandidateTask(graph, user, followees, 0, followees.length));
+            return topCandidates(graph, counts);
+        });
+    }
+
+    private List<String> topCandidates(FollowGraph graph, Counts counts) {
+        // Min-heap on (score, then reversed node) so the weakest candidate is evicted first
+        PriorityQueue<long[]> top = new PriorityQueue<>(
+            (a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(b[0], a[0])
+        );
+        for (int i = 0; i < counts.size; i++) {
+            top.add(new long[]{counts.nodes[i], counts.scores[i]});
+            if (top.size() > maxResults) {
+                top.poll();
+            }
+        }
+
+        List<String> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(graph.idOf((int) top.poll()[0]));
+        }
+        Collections.reverse(result);
+        return List.copyOf(result);
+    }
+
+    private synchronized Map<String, CachedSuggestions> cache() {
+        if (cache == null) {
+            cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedSuggestions> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        }
+        return cache;
+    }
+
+    private record CachedSuggestions(List<String> userIds, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    /**
+     * Candidate nodes in ascending order with the number of the user's
+     * followees that follow each of them.
+     */
+    private record Counts(int[] nodes, int[] scores, int size) {
+        static Counts merge(Counts left, Counts right) {
+            int[] nodes = new int[left.size + right.size];
+            int[] scores = new int[nodes.length];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < left.size || j < right.size) {
+                if (j == right.size || (i < left.size && left.nodes[i] < right.nodes[j])) {
+                    nodes[size] = left.nodes[i];
+                    scores[size++] = left.scores[i++];
+                } else if (i == left.size || right.nodes[j] < left.nodes[i]) {
+                    nodes[size] = right.nodes[j];
+                    scores[size++] = right.scores[j++];
+                } else {
+                    nodes[size] = left.nodes[i];
+                    scores[size++] = left.scores[i++] + right.scores[j++];
+                }
+            }
+            return new Counts(nodes, scores, size);
+        }
+    }
+
+    private static final class CandidateTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        private final FollowGraph graph;
+        private final int user;
+        private final int[] followees;
+        private final int from;
+        private final int to;
+
+        CandidateTask(FollowGraph graph, int user, int[] followees, int from, int to) {
+            this.graph = graph;
+            this.user = user;
+            this.followees = followees;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                CandidateTask left = new CandidateTask(graph, user, followees, from, middle);
+                left.fork();
+                Counts right = new CandidateTask(graph, user, followees, middle, to).compute();
+                return Counts.merge(left.join(), right);
+            }
+
+            int[][] candidates = new int[1][64];
+            int[] size = {0};
+            for (int i = from; i < to; i++) {
+                graph.forEachFollowing(followees[i], candidate -> {
+                    if (candidate == user || Arrays.binarySearch(followees, candidate) >= 0) {
+                        return;
+                    }
+                    if (size[0] == candidates[0].length) {
+                        candidates[0] = Arrays.copyOf(candidates[0], size[0] * 2);
+                    }
+                    candidates[0][size[0]++] = candidate;
+                });
+            }
+
+            // Sort then run-length encode into (node, score) pairs
+            int[] sorted = candidates[0];
+            Arrays.sort(sorted, 0, size[0]);
+            int[] nodes = new int[size[0]];
+            int[] scores = new int[size[0]];
+            int unique = 0;
+            for (int i = 0; i < size[0]; i++) {
+                if (unique > 0 && nodes[unique - 1] == sorted[i]) {
+                    scores[unique - 1]++;
+                } else {
+                    nodes[unique] = sorted[i];
+                    scores[unique++] = 1;
+                }
+            }
+            return new Counts(nodes, scores, unique);
+        }
+    }
+}
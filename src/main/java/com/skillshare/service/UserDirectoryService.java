@@ -0,0 +1,93 @@
+package com.skillshare.service;
+
+import com.skillshare.model.CursorPage;
+import com.skillshare.model.PublicProfile;
+import com.skillshare.model.User;
+import com.skillshare.model.UserSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class UserDirectoryService {
+    private final MongoTemplate mongoTemplate;
+
+    public enum SortOrder {
+        // first_name ascending, backed by first_name_idx
+        NAME,
+        // created_at descending, backed by created_at_idx
+        NEWEST
+    }
+
+    @Value("${users.directory.page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${users.directory.max-page-size:100}")
+    private int maxPageSize;
+
+    public CursorPage<PublicProfile> getDirectory(SortOrder sortOrder, String cursor, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        boolean hasCursor = cursor != null && !cursor.isBlank();
+
+        Query query = new Query();
+        if (sortOrder == SortOrder.NAME) {
+            if (hasCursor) {
+                query.addCriteria(CursorCodec.afterKey("first_name", cursor));
+            }
+            query.with(Sort.by(Sort.Direction.ASC, "first_name").and(Sort.by(Sort.Direction.ASC, "_id")));
+        } else {
+            if (hasCursor) {
+                query.addCriteria(CursorCodec.olderThan("created_at", cursor));
+            }
+            query.with(Sort.by(Sort.Direction.DESC, "created_at").and(Sort.by(Sort.Direction.DESC, "_id")));
+        }
+        query.fields().include(PublicProfile.FIELDS);
+        query.limit(pageSize + 1);
+
+        List<PublicProfile> profiles = mongoTemplate.find(
+            query, PublicProfile.class, mongoTemplate.getCollectionName(User.class)
+        );
+
+        String nextCursor = null;
+        if (profiles.size() > pageSize) {
+            profiles = profiles.subList(0, pageSize);
+            PublicProfile last = profiles.get(pageSize - 1);
+            nextCursor = sortOrder == SortOrder.NAME
+                ? CursorCodec.encodeKey(last.getFirstName(), last.getId())
+                : CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return CursorPage.<PublicProfile>builder()
+            .items(profiles)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    /**
+     * Loads summaries for the given ids in one query, keeping the order of
+     * the ids and skipping users that no longer exist.
+     */
+    public List<UserSummary> findSummaries(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include(UserSummary.FIELDS);
+        Map<String, UserSummary> summaries = mongoTemplate
+            .find(query, UserSummary.class, mongoTemplate.getCollectionName(User.class))
+            .stream()
+            .collect(Collectors.toMap(UserSummary::getId, Function.identity()));
+        return ids.stream().map(summaries::get).filter(Objects::nonNull).toList();
+    }
+}
@@ -0,0 +1,185 @@
+package com.skillshare.service;
+
+import com.skillshare.model.PublicProfile;
+import com.skillshare.model.User;
+import com.skillshare.model.UserSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Prefix index over normalized user names for typeahead. Every user is
+ * indexed under their first name, last name and full name, so "ann",
+ * "smi" and "ann sm" all match Ann Smith. Kept current from user saves,
+ * profile updates and deletes, and rebuilt periodically to pick up follower counts that
+ * change through in-place updates.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserNameIndex extends AbstractMongoEventListener<User> {
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Comparator<Entry> BY_FOLLOWERS = Comparator
+        .comparingLong(Entry::followersCount).reversed()
+        .thenComparing(Entry::userId);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${users.suggest.max-results:10}")
+    private int maxResults;
+
+    // Upper bound on index keys examined per query, so one-letter prefixes stay cheap
+    @Value("${users.suggest.max-scan:5000}")
+    private int maxScan;
+
+    private final ConcurrentSkipListMap<String, Entry> index = new ConcurrentSkipListMap<>();
+    private final Map<String, List<String>> keysByUser = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${users.suggest.rebuild-cron:0 */15 * * * *}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Query query = new Query();
+        query.fields().include(PublicProfile.FIELDS);
+
+        long users = 0;
+        try (Stream<PublicProfile> profiles = mongoTemplate.stream(
+            query, PublicProfile.class, mongoTemplate.getCollectionName(User.class)
+        )) {
+            for (PublicProfile profile : (Iterable<PublicProfile>) profiles::iterator) {
+                put(new Entry(
+                    profile.getId(),
+                    profile.getFirstName(),
+                    profile.getLastName(),
+                    profile.getAvatarUrl(),
+                    profile.getFollowersCount()
+                ));
+                users++;
+            }
+        }
+        log.info("User name index built: {} users, {} keys in {} ms",
+            users, index.size(), System.currentTimeMillis() - started);
+    }
+
+    public List<UserSummary> suggest(String query, Integer limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int size = limit == null || limit <= 0 ? maxResults : Math.min(limit, maxResults);
+
+        NavigableMap<String, Entry> matches = index.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+        Map<String, Entry> byUser = new LinkedHashMap<>();
+        int scanned = 0;
+        for (Entry entry : matches.values()) {
+            byUser.putIfAbsent(entry.userId(), entry);
+            if (++scanned >= maxScan) {
+                break;
+            }
+        }
+
+        List<Entry> ranked = new ArrayList<>(byUser.values());
+        ranked.sort(BY_FOLLOWERS);
+        return ranked.stream()
+            .limit(size)
+            .map(entry -> UserSummary.builder()
+                .id(entry.userId())
+                .firstName(entry.firstName())
+                .lastName(entry.lastName())
+                .avatarUrl(entry.avatarUrl())
+                .build())
+            .toList();
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        update(event.getSource());
+    }
+
+    // For targeted updates, which fire no mapping events
+    public void update(User user) {
+        if (user.getId() != null) {
+            put(new Entry(
+                user.getId(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getAvatarUrl(),
+                user.getFollowersCount()
+            ));
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        Document document = event.getSource();
+        Object id = document.get("_id");
+        if (id != null) {
+            remove(id.toString());
+        }
+    }
+
+    private void put(Entry entry) {
+        remove(entry.userId());
+
+        Set<String> names = new LinkedHashSet<>();
+        String first = normalize(entry.firstName());
+        String last = normalize(entry.lastName());
+        names.add(first);
+        names.add(last);
+        names.add(normalize(first + " " + last));
+        names.remove("");
+
+        List<String> keys = new ArrayList<>(names.size());
+        for (String name : names) {
+            String key = name + KEY_SEPARATOR + entry.userId();
+            index.put(key, entry);
+            keys.add(key);
+        }
+        keysByUser.put(entry.userId(), keys);
+    }
+
+    private void remove(String userId) {
+        List<String> keys = keysByUser.remove(userId);
+        if (keys != null) {
+            keys.forEach(index::remove);
+        }
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private record Entry(String userId, String firstName, String lastName, String avatarUrl, long followersCount) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.skillshare.service;
+
+import com.skillshare.model.User;
+import com.skillshare.model.UserSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * LRU cache of the name and avatar needed to render a user as an author.
+ * Each entry is packed into one small byte array rather than kept as a
+ * UserSummary object graph.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserSummaryCache {
+    private static final String[] FIELDS = {"first_name", "last_name", "avatar_url"};
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${users.summary-cache.max-entries:100000}")
+    private int maxEntries;
+
+    private Map<String, byte[]> entries;
+
+    public Optional<UserSummary> get(String userId) {
+        List<UserSummary> summaries = getAll(List.of(userId));
+        return summaries.isEmpty() ? Optional.empty() : Optional.of(summaries.get(0));
+    }
+
+    /**
+     * Summaries in the order of the ids, loading all misses with one
+     * projected query. Unknown users are skipped.
+     */
+    public List<UserSummary> getAll(List<String> userIds) {
+        Map<String, UserSummary> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String userId : userIds) {
+                byte[] packed = entries().get(userId);
+                if (packed != null) {
+                    found.put(userId, unpack(userId, packed));
+                } else {
+                    missing.add(userId);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Query query = Query.query(Criteria.where("_id").in(missing));
+            query.fields().include(FIELDS);
+            List<UserSummary> loaded = mongoTemplate.find(
+                query, UserSummary.class, mongoTemplate.getCollectionName(User.class)
+            );
+            // A put() made while the query ran is newer than what it read
+            synchronized (this) {
+                loaded.forEach(summary -> entries().putIfAbsent(summary.getId(), pack(summary)));
+            }
+            loaded.forEach(summary -> found.put(summary.getId(), summary));
+        }
+
+        return userIds.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    public void put(User user) {
+        UserSummary summary = UserSummary.builder()
+            .id(user.getId())
+            .firstName(user.getFirstName())
+            .lastName(user.getLastName())
+            .avatarUrl(user.getAvatarUrl())
+            .build();
+        synchronized (this) {
+            entries().put(user.getId(), pack(summary));
+        }
+    }
+
+    public synchronized void evict(String userId) {
+        entries().remove(userId);
+    }
+
+    private synchronized Map<String, byte[]> entries() {
+        if (entries == null) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+        return entries;
+    }
+
+    // Layout: null-mask byte, then a length-prefixed UTF-8 string for each present field
+    private static byte[] pack(UserSummary summary) {
+        String[] values = {summary.getFirstName(), summary.getLastName(), summary.getAvatarUrl()};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int mask = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    mask |= 1 << i;
+                }
+            }
+            out.writeByte(mask);
+            for (String value : values) {
+                if (value != null) {
+                    // Not writeUTF, which rejects strings over 64 KB such as data: avatar URLs
+                    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(encoded.length);
+                    out.write(encoded);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static UserSummary unpack(String userId, byte[] packed) {
+        String[] values = new String[3];
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(packed))) {
+            int mask = in.readUnsignedByte();
+            for (int i = 0; i < values.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    values[i] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return UserSummary.builder()
+            .id(userId)
+            .firstName(values[0])
+            .lastName(values[1])
+            .avatarUrl(values[2])
+            .build();
+    }
+}
@@ -0,0 +1,120 @@
+package com.skillshare.service;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput comparison of the media stores. Each store writes, reads
+ * back, range-reads and deletes the same synthetic objects and the
+ * results are printed. Objects are not linked to file documents, so they
+ * never show up as media.
+ *
+ * <p>Lives with the test sources, so it is not part of the application
+ * jar, and is run by hand. The stores are built in a context of their own
+ * and read their settings from system properties:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.skillshare.service.MediaStoreBenchmark \
+ *     -Dexec.args="100 1048576" \
+ *     -Dspring.data.mongodb.uri=mongodb://localhost:27017/media-benchmark \
+ *     -Dmedia.filesystem-store.dir=/tmp/media-benchmark
+ * </pre>
+ * The arguments are the number of objects and the bytes per object.
+ */
+public final class MediaStoreBenchmark {
+    private static final String DEFAULT_URI = "mongodb://localhost:27017/media-benchmark";
+    private static final int RANGE_BYTES = 64 * 1024;
+
+    private final int objects;
+    private final byte[] content;
+
+    private MediaStoreBenchmark(int objects, int objectBytes) {
+        this.objects = objects;
+        this.content = new byte[objectBytes];
+        new Random(42).nextBytes(content);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int objects = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int objectBytes = args.length > 1 ? Integer.parseInt(args[1]) : 1048576;
+        ConnectionString uri = new ConnectionString(System.getProperty("spring.data.mongodb.uri", DEFAULT_URI));
+        String database = uri.getDatabase() == null ? "media-benchmark" : uri.getDatabase();
+
+        try (MongoClient client = MongoClients.create(uri);
+             AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(MongoTemplate.class, () -> new MongoTemplate(client, database));
+            context.register(GridFsMediaStore.class, FileSystemMediaStore.class);
+            context.refresh();
+
+            new MediaStoreBenchmark(objects, objectBytes).run(context.getBeansOfType(MediaStore.class).values());
+        }
+    }
+
+    private void run(Collection<MediaStore> stores) throws IOException {
+        for (MediaStore store : stores) {
+            benchmark(store);
+        }
+    }
+
+    private void benchmark(MediaStore store) throws IOException {
+        List<ObjectId> ids = new ArrayList<>(objects);
+        for (int i = 0; i < objects; i++) {
+            ids.add(new ObjectId());
+        }
+        long totalBytes = (long) objects * content.length;
+        Random random = new Random(7);
+
+        try {
+            long started = System.nanoTime();
+            for (ObjectId id : ids) {
+                store.put(id, new ByteArrayInputStream(content));
+            }
+            long writeNanos = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            for (ObjectId id : ids) {
+                try (InputStream in = store.open(id)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            long readNanos = System.nanoTime() - started;
+
+            int rangeLength = Math.min(RANGE_BYTES, content.length);
+            started = System.nanoTime();
+            for (ObjectId id : ids) {
+                long start = random.nextInt(content.length - rangeLength + 1);
+                store.writeRange(id, start, start + rangeLength - 1, OutputStream.nullOutputStream());
+            }
+            long rangeNanos = System.nanoTime() - started;
+
+            System.out.printf("Media store %s: write %s MB/s, read %s MB/s, %.0f range reads/s (%d objects of %d bytes)%n",
+                store.name(),
+                megabytesPerSecond(totalBytes, writeNanos),
+                megabytesPerSecond(totalBytes, readNanos),
+                objects / (rangeNanos / 1e9),
+                objects,
+                content.length);
+        } finally {
+            for (ObjectId id : ids) {
+                store.delete(id);
+            }
+        }
+    }
+
+    private String megabytesPerSecond(long bytes, long nanos) {
+        return String.format("%.1f", bytes / 1048576.0 / (nanos / 1e9));
+    }
+}